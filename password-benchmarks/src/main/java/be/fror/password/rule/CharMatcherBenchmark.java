@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import com.google.common.base.CharMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares <tt>AsciiCharMatcher</tt> with the equivalent Guava <tt>CharMatcher</tt>s.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CharMatcherBenchmark {
+
+  @Param({"16", "256"})
+  public int length;
+
+  private String text;
+  private CharMatcher ascii;
+  private CharMatcher guavaAnyOf;
+  private CharMatcher guavaPrecomputed;
+
+  @Setup
+  public void setUp() {
+    this.ascii = RuleConstants.ASCII_SYMBOL_MATCHER;
+    this.guavaAnyOf = CharMatcher.anyOf(RuleConstants.ASCII_SYMBOL_CHARACTERS);
+    this.guavaPrecomputed = this.guavaAnyOf.precomputed();
+    final String pattern = "aB1!cD2?é ";
+    final StringBuilder sb = new StringBuilder(this.length);
+    while (sb.length() < this.length) {
+      sb.append(pattern.charAt(sb.length() % pattern.length()));
+    }
+    this.text = sb.toString();
+  }
+
+  @Benchmark
+  public int asciiCharMatcher_countIn() {
+    return this.ascii.countIn(this.text);
+  }
+
+  @Benchmark
+  public int guavaAnyOf_countIn() {
+    return this.guavaAnyOf.countIn(this.text);
+  }
+
+  @Benchmark
+  public int guavaPrecomputed_countIn() {
+    return this.guavaPrecomputed.countIn(this.text);
+  }
+
+  @Benchmark
+  public int asciiCharMatcher_retainFrom() {
+    return this.ascii.retainFrom(this.text).length();
+  }
+
+  @Benchmark
+  public int guavaAnyOf_retainFrom() {
+    return this.guavaAnyOf.retainFrom(this.text).length();
+  }
+}
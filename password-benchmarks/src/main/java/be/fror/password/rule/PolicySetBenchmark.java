@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+import static be.fror.password.rule.Rule.asciiDigits;
+import static be.fror.password.rule.Rule.asciiLowercaseLetters;
+import static be.fror.password.rule.Rule.asciiSymbols;
+import static be.fror.password.rule.Rule.asciiUppercaseLetters;
+import static be.fror.password.rule.Rule.lengthIsBetween;
+import static be.fror.password.rule.Rule.noWhitespace;
+
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a <tt>PolicySet</tt> with the validation of a password by each of its <tt>Ruler</tt>s.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolicySetBenchmark {
+
+  @Param({"10", "100"})
+  public int policies;
+
+  @Param({"12", "64"})
+  public int length;
+
+  private Map<Integer, Ruler> rulers;
+  private PolicySet<Integer> policySet;
+  private String password;
+
+  @Setup
+  public void setUp() {
+    this.rulers = new LinkedHashMap<>();
+    for (int i = 0; i < this.policies; i++) {
+      // Policies differ by their thresholds, as tenants usually do.
+      this.rulers.put(i, Ruler.createFromRules(ImmutableSet.of(
+          lengthIsBetween(6 + i % 8, 128),
+          asciiLowercaseLetters(1 + i % 3),
+          asciiUppercaseLetters(1 + i % 2),
+          asciiDigits(1 + i % 4),
+          asciiSymbols(1 + i % 3),
+          noWhitespace())));
+    }
+    this.policySet = PolicySet.of(this.rulers);
+    final String pattern = "aB1!cD2?eF3#";
+    final StringBuilder sb = new StringBuilder(this.length);
+    while (sb.length() < this.length) {
+      sb.append(pattern.charAt(sb.length() % pattern.length()));
+    }
+    this.password = sb.toString();
+  }
+
+  @Benchmark
+  public ImmutableSet<Integer> policySet() {
+    return this.policySet.getAcceptingPolicies(this.password);
+  }
+
+  @Benchmark
+  public ImmutableSet<Integer> eachRuler() {
+    final ImmutableSet.Builder<Integer> accepting = ImmutableSet.builder();
+    for (Map.Entry<Integer, Ruler> ruler : this.rulers.entrySet()) {
+      if (ruler.getValue().isValid(this.password)) {
+        accepting.add(ruler.getKey());
+      }
+    }
+    return accepting.build();
+  }
+}
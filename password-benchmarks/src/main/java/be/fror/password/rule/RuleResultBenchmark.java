@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the construction of <tt>RuleResult</tt>s.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuleResultBenchmark {
+
+  private RuleResult failed;
+
+  @Setup
+  public void setUp() {
+    this.failed = RuleResult.failed("length.tooShort", "minimumLength", 8);
+  }
+
+  @Benchmark
+  public RuleResult ok() {
+    return RuleResult.ok();
+  }
+
+  @Benchmark
+  public RuleResult failed_noParameter() {
+    return RuleResult.failed("noWhitespace");
+  }
+
+  @Benchmark
+  public RuleResult failed_twoParameters() {
+    return RuleResult.failed("characters.asciiDigits", "characters", "0123456789", "numberOfCharacters", 2);
+  }
+
+  @Benchmark
+  public RuleResult failed_twoFailures() {
+    return RuleResult.failed("length.tooShort", "minimumLength", 8)
+        .addFailure("characters.asciiDigits", "characters", "0123456789", "numberOfCharacters", 2);
+  }
+
+  @Benchmark
+  public ImmutableList<Failure> getFailures() {
+    return this.failed.getFailures();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static be.fror.password.rule.Rule.asciiDigits;
+import static be.fror.password.rule.Rule.asciiLowercaseLetters;
+import static be.fror.password.rule.Rule.asciiSymbols;
+import static be.fror.password.rule.Rule.asciiUppercaseLetters;
+import static java.util.Arrays.asList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of <tt>Ruler.generatePassword</tt> with several sources of randomness.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RulerGenerationBenchmark {
+
+  private static final int BATCH_SIZE = 1_000;
+
+  @Param({"Random", "SecureRandom", "ThreadLocalRandom"})
+  public String randomType;
+
+  @Param({"12", "64"})
+  public int length;
+
+  private Ruler ruler;
+  private Random random;
+  private StringBuilder output;
+
+  @Setup
+  public void setUp() {
+    this.ruler = Ruler.createFromRules(asList(
+        asciiLowercaseLetters(1),
+        asciiUppercaseLetters(1),
+        asciiDigits(1),
+        asciiSymbols(1)
+    ));
+    switch (this.randomType) {
+      case "Random":
+        this.random = new Random(0);
+        break;
+      case "SecureRandom":
+        this.random = new SecureRandom();
+        break;
+      case "ThreadLocalRandom":
+        this.random = ThreadLocalRandom.current();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown random type: " + this.randomType);
+    }
+    this.output = new StringBuilder();
+  }
+
+  @Benchmark
+  public String generatePassword() {
+    return this.ruler.generatePassword(this.length, this.random);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public int generatePasswords_appendable() throws IOException {
+    this.output.setLength(0);
+    this.ruler.generatePasswords(BATCH_SIZE, this.length, this.random, this.output);
+    return this.output.length();
+  }
+}
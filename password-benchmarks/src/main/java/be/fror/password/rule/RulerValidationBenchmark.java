@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static be.fror.password.rule.Rule.asciiDigits;
+import static be.fror.password.rule.Rule.asciiLowercaseLetters;
+import static be.fror.password.rule.Rule.asciiSymbols;
+import static be.fror.password.rule.Rule.asciiUppercaseLetters;
+import static be.fror.password.rule.Rule.lengthIsBetween;
+import static be.fror.password.rule.Rule.noWhitespace;
+import static java.util.Arrays.asList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of <tt>Ruler.validatePassword</tt>.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RulerValidationBenchmark {
+
+  @Param({"valid", "invalid"})
+  public String validity;
+
+  @Param({"12", "256"})
+  public int length;
+
+  @Param({"ascii", "nonAscii"})
+  public String charset;
+
+  private Ruler ruler;
+  private String password;
+  private byte[] utf8Password;
+
+  @Setup
+  public void setUp() {
+    this.ruler = Ruler.createFromRules(asList(
+        lengthIsBetween(8, 1024),
+        asciiLowercaseLetters(1),
+        asciiUppercaseLetters(1),
+        asciiDigits(1),
+        asciiSymbols(1),
+        noWhitespace()
+    ));
+    // Valid passwords contain all the required classes, invalid ones lack digits and symbols.
+    final String pattern;
+    if ("valid".equals(this.validity)) {
+      pattern = "nonAscii".equals(this.charset) ? "aB1!éßÀΩ" : "aB1!cD2?";
+    } else {
+      pattern = "nonAscii".equals(this.charset) ? "aBéßÀΩcD" : "aBcDeFgH";
+    }
+    final StringBuilder sb = new StringBuilder(this.length);
+    while (sb.length() < this.length) {
+      sb.append(pattern.charAt(sb.length() % pattern.length()));
+    }
+    this.password = sb.toString();
+    this.utf8Password = this.password.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public RuleResult validatePassword() {
+    return this.ruler.validatePassword(this.password);
+  }
+
+  /**
+   * Validates the UTF-8 bytes directly.
+   */
+  @Benchmark
+  public RuleResult validateUtf8() {
+    return this.ruler.validateUtf8(this.utf8Password);
+  }
+
+  /**
+   * Decodes the UTF-8 bytes then validates the resulting <tt>String</tt>, as callers had to before
+   * <tt>validateUtf8</tt>.
+   */
+  @Benchmark
+  public RuleResult decodeAndValidatePassword() {
+    return this.ruler.validatePassword(new String(this.utf8Password, StandardCharsets.UTF_8));
+  }
+
+  @Benchmark
+  public boolean isValid() {
+    return this.ruler.isValid(this.password);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of <tt>StrengthEstimator.estimateEntropy</tt>, with and without an index of 100,000
+ * known passwords.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StrengthEstimatorBenchmark {
+
+  @Param({"Tr0ub4dor&3", "correcthorsebatterystaple", "qwerty123456password987654"})
+  public String password;
+
+  private Path list;
+  private Path file;
+  private StrengthEstimator estimator;
+  private StrengthEstimator indexedEstimator;
+
+  @Setup
+  public void setUp() throws IOException {
+    final List<String> passwords = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      passwords.add("password" + i);
+    }
+    passwords.add("horse");
+    passwords.add("battery");
+    this.list = Files.createTempFile("passwords", ".txt");
+    Files.write(this.list, passwords, StandardCharsets.UTF_8);
+    this.file = Files.createTempFile("passwords", ".idx");
+    PasswordIndexBuilder.build(this.list, this.file, 1 << 16);
+    this.estimator = StrengthEstimator.create();
+    this.indexedEstimator = StrengthEstimator.create(PasswordIndex.open(this.file));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(this.list);
+    Files.deleteIfExists(this.file);
+  }
+
+  @Benchmark
+  public double estimateEntropy() {
+    return this.estimator.estimateEntropy(this.password);
+  }
+
+  @Benchmark
+  public double estimateEntropy_index() {
+    return this.indexedEstimator.estimateEntropy(this.password);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Orders the evaluation units of <tt>CompiledRules</tt> in fail-fast mode according to their
+ * observed cost and rejection rate.
+ *
+ * <p>
+ * One evaluation out of <tt>SAMPLING_RATE</tt> is sampled: all the units are then evaluated and
+ * timed, whatever their result, so that the rejection rates are not biased by the current order.
+ * Every <tt>SAMPLES_PER_REORDER</tt> samples, the units are sorted by increasing
+ * <tt>cost / rejection rate</tt>, which minimizes the expected cost of a fail-fast evaluation of
+ * independent units. The new order is published as a new array, so readers never lock.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@ThreadSafe
+final class AdaptiveOrdering {
+
+  static final int SAMPLING_RATE = 64;
+  static final int SAMPLES_PER_REORDER = 1_024;
+
+  private final LongAdder[] evaluations;
+  private final LongAdder[] nanos;
+  private final LongAdder[] rejections;
+  private final AtomicLong samples = new AtomicLong();
+  private volatile int[] order;
+
+  /**
+   * @param initialOrder the units, in their initial order
+   * @param unitCount the number of unit identifiers, greater than any unit of
+   * <tt>initialOrder</tt>
+   */
+  AdaptiveOrdering(final int[] initialOrder, final int unitCount) {
+    this.order = initialOrder.clone();
+    this.evaluations = newAdders(unitCount);
+    this.nanos = newAdders(unitCount);
+    this.rejections = newAdders(unitCount);
+  }
+
+  private static LongAdder[] newAdders(final int count) {
+    final LongAdder[] adders = new LongAdder[count];
+    for (int i = 0; i < count; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+
+  /**
+   * Returns the current order of the units. The returned array must not be modified.
+   */
+  int[] order() {
+    return this.order;
+  }
+
+  /**
+   * Returns whether the current evaluation should be sampled.
+   */
+  boolean shouldSample() {
+    return ThreadLocalRandom.current().nextInt(SAMPLING_RATE) == 0;
+  }
+
+  /**
+   * Records the evaluation of a unit during a sampled evaluation.
+   */
+  void record(final int unit, final long elapsedNanos, final boolean rejected) {
+    this.evaluations[unit].increment();
+    this.nanos[unit].add(elapsedNanos);
+    if (rejected) {
+      this.rejections[unit].increment();
+    }
+  }
+
+  /**
+   * Notifies the end of a sampled evaluation, reordering the units periodically.
+   */
+  void sampled() {
+    if (this.samples.incrementAndGet() % SAMPLES_PER_REORDER == 0) {
+      reorder();
+    }
+  }
+
+  /**
+   * Sorts the units by increasing expected cost per rejection and publishes the new order.
+   */
+  void reorder() {
+    final int[] current = this.order;
+    final double[] scores = new double[this.evaluations.length];
+    final Integer[] units = new Integer[current.length];
+    for (int i = 0; i < current.length; i++) {
+      final int unit = current[i];
+      final long count = this.evaluations[unit].sum();
+      final double cost = (this.nanos[unit].sum() + 1.0) / (count + 1.0);
+      // Laplace smoothing: never observed units are considered to reject half the passwords.
+      final double rejectionRate = (this.rejections[unit].sum() + 1.0) / (count + 2.0);
+      scores[unit] = cost / rejectionRate;
+      units[i] = unit;
+    }
+    Arrays.sort(units, Comparator.comparingDouble(unit -> scores[unit]));
+    final int[] newOrder = new int[units.length];
+    for (int i = 0; i < units.length; i++) {
+      newOrder[i] = units[i];
+    }
+    this.order = newOrder;
+  }
+}
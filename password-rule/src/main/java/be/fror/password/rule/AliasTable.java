@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A table drawing indices according to integer weights in constant time, with Vose's alias
+ * method.
+ *
+ * <p>
+ * Each of the <tt>n</tt> columns of the table holds an index, its alias and the probability,
+ * scaled to the total weight, to draw the index rather than its alias. A draw is then made of two
+ * uniform integers: the column and the choice between the index and its alias. As the weights are
+ * integers, the probabilities are exact.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@Immutable
+final class AliasTable {
+
+  /**
+   * The maximum total weight, so that the scaled weights fit in an <tt>int</tt>.
+   */
+  static final int MAX_TOTAL_WEIGHT = 1 << 30;
+
+  private final int total;
+  private final int[] thresholds;
+  private final int[] aliases;
+  private final double entropy;
+
+  /**
+   * Builds the table drawing each index <tt>i</tt> with a probability of
+   * <tt>weights[i] / sum(weights)</tt>.
+   *
+   * @param weights the weights of each index, all positive, whose sum is at most
+   * <tt>MAX_TOTAL_WEIGHT</tt>
+   */
+  AliasTable(final int[] weights) {
+    final int n = weights.length;
+    checkArgument(n > 0, "weights must not be empty");
+    long sum = 0;
+    for (int weight : weights) {
+      checkArgument(weight > 0, "weights must be positive");
+      sum += weight;
+    }
+    checkArgument(sum <= MAX_TOTAL_WEIGHT, "The sum of the weights (%s) must be at most %s", sum, MAX_TOTAL_WEIGHT);
+    this.total = (int) sum;
+    this.thresholds = new int[n];
+    this.aliases = new int[n];
+
+    // Scaled by n, the weights average total: the columns are filled by pairing one weight below
+    // the average with one above it.
+    final long[] scaled = new long[n];
+    final int[] small = new int[n];
+    final int[] large = new int[n];
+    int smallSize = 0;
+    int largeSize = 0;
+    double entropy = 0;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = (long) weights[i] * n;
+      if (scaled[i] < this.total) {
+        small[smallSize++] = i;
+      } else {
+        large[largeSize++] = i;
+      }
+      final double p = (double) weights[i] / this.total;
+      entropy -= p * Math.log(p);
+    }
+    this.entropy = entropy / Math.log(2);
+    while (smallSize > 0 && largeSize > 0) {
+      final int less = small[--smallSize];
+      final int more = large[--largeSize];
+      this.thresholds[less] = (int) scaled[less];
+      this.aliases[less] = more;
+      scaled[more] -= this.total - scaled[less];
+      if (scaled[more] < this.total) {
+        small[smallSize++] = more;
+      } else {
+        large[largeSize++] = more;
+      }
+    }
+    // The remaining columns are full, up to rounding errors which can't happen with integers.
+    while (largeSize > 0) {
+      final int i = large[--largeSize];
+      this.thresholds[i] = this.total;
+      this.aliases[i] = i;
+    }
+    while (smallSize > 0) {
+      final int i = small[--smallSize];
+      this.thresholds[i] = this.total;
+      this.aliases[i] = i;
+    }
+  }
+
+  /**
+   * Returns the Shannon entropy of the drawn indices, in bits.
+   */
+  double entropy() {
+    return this.entropy;
+  }
+
+  /**
+   * Draws an index according to the weights of the table.
+   */
+  int draw(final RandomSource random) {
+    final int column = random.nextInt(this.thresholds.length);
+    return random.nextInt(this.total) < this.thresholds[column] ? column : this.aliases[column];
+  }
+}
@@ -15,50 +15,94 @@
  */
 package be.fror.password.rule;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.common.base.Ascii;
 import com.google.common.base.CharMatcher;
 
 /**
+ * A <tt>CharMatcher</tt> matching only ASCII characters.
+ *
+ * <p>
+ * The matched characters are stored as a 128-bit set in two <tt>long</tt>s: the characters
+ * <tt>0</tt> to <tt>63</tt> in <tt>low</tt> and <tt>64</tt> to <tt>127</tt> in <tt>high</tt>.
  *
  * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
  */
 class AsciiCharMatcher extends CharMatcher {
 
-  private static final int ARRAY_SIZE = Ascii.MAX + 1;
-
   static AsciiCharMatcher anyOfAscii(CharSequence characters) {
-    boolean[] matchingCharacters = new boolean[ARRAY_SIZE];
+    long low = 0L;
+    long high = 0L;
     for (int i = 0, l = characters.length(); i < l; i++) {
-      matchingCharacters[characters.charAt(i)] = true;
+      final char c = characters.charAt(i);
+      checkArgument(c <= Ascii.MAX, "Not an ASCII character: \\u%s", Integer.toHexString(c));
+      if (c < Long.SIZE) {
+        low |= 1L << c;
+      } else {
+        high |= 1L << c;
+      }
     }
-    return new AsciiCharMatcher(matchingCharacters);
+    return new AsciiCharMatcher(low, high);
   }
 
-  private final boolean[] matchingCharacters;
+  private final long low;
+  private final long high;
 
-  private AsciiCharMatcher(boolean[] matchingCharacters) {
-    this.matchingCharacters = matchingCharacters;
+  private AsciiCharMatcher(long low, long high) {
+    this.low = low;
+    this.high = high;
   }
 
   @Override
   public boolean matches(char c) {
-    return c <= Ascii.MAX && matchingCharacters[c];
+    return bit(c) != 0;
   }
 
-  AsciiCharMatcher or(AsciiCharMatcher other) {
-    boolean[] newMatchingCharacters = new boolean[ARRAY_SIZE];
-    for (int i = 0; i < ARRAY_SIZE; i++) {
-      newMatchingCharacters[i] = this.matchingCharacters[i] | other.matchingCharacters[i];
+  /**
+   * Returns <tt>1</tt> if <tt>c</tt> is matched, <tt>0</tt> otherwise, without branching.
+   */
+  private int bit(int c) {
+    // word is 0 for low, 1 for high and greater for non-ASCII characters.
+    final int word = c >>> 6;
+    final long bits = (this.low & ((word - 1) >> 31)) | (this.high & (((word ^ 1) - 1) >> 31));
+    return (int) (bits >>> c) & 1;
+  }
+
+  @Override
+  public int countIn(CharSequence sequence) {
+    int count = 0;
+    for (int i = 0, l = sequence.length(); i < l; i++) {
+      count += bit(sequence.charAt(i));
     }
-    return new AsciiCharMatcher(newMatchingCharacters);
+    return count;
   }
 
-  AsciiCharMatcher and(AsciiCharMatcher other) {
-    boolean[] newMatchingCharacters = new boolean[ARRAY_SIZE];
-    for (int i = 0; i < ARRAY_SIZE; i++) {
-      newMatchingCharacters[i] = this.matchingCharacters[i] & other.matchingCharacters[i];
+  /**
+   * Returns the number of bytes of <tt>bytes[offset, offset + length)</tt> that are ASCII
+   * characters matched by this matcher. Negative bytes, that is bytes of non-ASCII characters
+   * encoded in UTF-8, are never matched.
+   *
+   * @param bytes the bytes to count
+   * @param offset the index of the first byte to count
+   * @param length the number of bytes to count
+   * @return the number of bytes matched
+   */
+  int countIn(byte[] bytes, int offset, int length) {
+    checkArgument(offset >= 0 && length >= 0 && offset + length <= bytes.length, "Invalid range");
+    int count = 0;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      count += bit(bytes[i] & 0xFF);
     }
-    return new AsciiCharMatcher(newMatchingCharacters);
+    return count;
   }
-  
+
+  AsciiCharMatcher or(AsciiCharMatcher other) {
+    return new AsciiCharMatcher(this.low | other.low, this.high | other.high);
+  }
+
+  AsciiCharMatcher and(AsciiCharMatcher other) {
+    return new AsciiCharMatcher(this.low & other.low, this.high & other.high);
+  }
+
 }
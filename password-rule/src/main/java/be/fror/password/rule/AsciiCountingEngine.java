@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import com.google.common.base.CharMatcher;
+
+import java.lang.reflect.Constructor;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Counts, in bulk, the ASCII characters matched by each slot of a <tt>CharacterCounter</tt>.
+ *
+ * <p>
+ * The only implementation uses the SIMD lanes of the incubating Vector API. It is compiled
+ * separately, for Java 17, and is only loaded when the <tt>jdk.incubator.vector</tt> module is
+ * available, that is when the JVM is started with
+ * <tt>--add-modules jdk.incubator.vector</tt>. Otherwise, or if the system property
+ * <tt>be.fror.password.rule.vector</tt> is <tt>false</tt>, <tt>CharacterCounter</tt> keeps using
+ * its scalar path.
+ *
+ * <p>
+ * The membership of the ASCII characters in a slot is given as a table of 16 bytes indexed by the
+ * low nibble of the character, whose bit <tt>h</tt> is set if the character whose high nibble is
+ * <tt>h</tt> is matched.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@Immutable
+abstract class AsciiCountingEngine {
+
+  static final String ENABLED_PROPERTY = "be.fror.password.rule.vector";
+
+  private static final String VECTOR_ENGINE = "be.fror.password.rule.VectorAsciiCountingEngine";
+
+  @Nullable
+  private static final Constructor<? extends AsciiCountingEngine> VECTOR_ENGINE_CONSTRUCTOR = findVectorEngine();
+
+  @Nullable
+  private static Constructor<? extends AsciiCountingEngine> findVectorEngine() {
+    if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))) {
+      return null;
+    }
+    try {
+      Class.forName("jdk.incubator.vector.ByteVector");
+      return Class.forName(VECTOR_ENGINE)
+          .asSubclass(AsciiCountingEngine.class)
+          .getDeclaredConstructor(byte[][].class);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // Before Java 17, without the incubator module or without the compiled engine.
+      return null;
+    }
+  }
+
+  /**
+   * Returns whether the vectorized engine can be used in this JVM.
+   */
+  static boolean isAvailable() {
+    return VECTOR_ENGINE_CONSTRUCTOR != null;
+  }
+
+  /**
+   * Returns an engine counting the ASCII characters matched by each of <tt>matchers</tt>, or
+   * <tt>null</tt> if no engine is available.
+   */
+  @Nullable
+  static AsciiCountingEngine forMatchers(final CharMatcher[] matchers) {
+    if (VECTOR_ENGINE_CONSTRUCTOR == null || matchers.length == 0) {
+      return null;
+    }
+    final byte[][] tables = new byte[matchers.length][16];
+    for (int slot = 0; slot < matchers.length; slot++) {
+      for (char c = 0; c < 128; c++) {
+        if (matchers[slot].matches(c)) {
+          tables[slot][c & 0x0F] |= (byte) (1 << (c >>> 4));
+        }
+      }
+    }
+    try {
+      return VECTOR_ENGINE_CONSTRUCTOR.newInstance((Object) tables);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // For instance if the vectors are too short for the tables.
+      return null;
+    }
+  }
+
+  /**
+   * Returns the minimum number of bytes for which this engine is faster than the scalar path.
+   */
+  abstract int minimumLength();
+
+  /**
+   * Returns whether all the bytes of <tt>bytes[offset, offset + length)</tt> are ASCII characters.
+   */
+  abstract boolean isAscii(byte[] bytes, int offset, int length);
+
+  /**
+   * Adds to <tt>counts</tt> the number of characters of the ASCII characters
+   * <tt>bytes[offset, offset + length)</tt> matched by each slot.
+   */
+  abstract void countAscii(byte[] bytes, int offset, int length, int[] counts);
+}
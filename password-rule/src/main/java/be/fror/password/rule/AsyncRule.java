@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A rule whose validation may block, for instance because it queries a remote service, and
+ * which can therefore be validated asynchronously.
+ *
+ * <p>
+ * <tt>Ruler.validatePasswordAsync(String)</tt> starts the validation of all the asynchronous
+ * rules at once, so that the validation takes as long as the slowest rule rather than the sum of
+ * all the rules.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ * @see Ruler#validatePasswordAsync(String)
+ */
+@FunctionalInterface
+public interface AsyncRule extends Rule {
+
+  /**
+   * Starts the validation of a password according to the requirements of this rule.
+   *
+   * <p>
+   * Implementations must never throw any exception, nor complete the returned future
+   * exceptionally.
+   *
+   * @param password the password to validate
+   * @param executor the executor to run blocking tasks on
+   * @return a future completed with a <tt>RuleResult</tt> describing the result of the validation
+   * of the password by this rule
+   */
+  public CompletableFuture<RuleResult> validateAsync(final Password password, final Executor executor);
+
+  /**
+   * Validates a password according to the requirements of this rule, waiting for the result of
+   * <tt>validateAsync(Password, Executor)</tt> run on the calling thread.
+   *
+   * @param password the password to validate
+   * @return a <tt>RuleResult</tt> describing the result of the validation of the password by this
+   * rule
+   */
+  @Override
+  public default RuleResult validate(final Password password) {
+    return validateAsync(password, Runnable::run).join();
+  }
+
+  /**
+   * Returns an asynchronous rule running <tt>rule</tt> on the given executor.
+   *
+   * @param rule the rule to run asynchronously
+   * @return <tt>rule</tt> itself if it's already asynchronous, an asynchronous view of it
+   * otherwise
+   */
+  public static AsyncRule of(final Rule rule) {
+    checkNotNull(rule, "rule must not be null");
+    if (rule instanceof AsyncRule) {
+      return (AsyncRule) rule;
+    }
+    return (password, executor) -> CompletableFuture.supplyAsync(() -> rule.validate(password), executor);
+  }
+
+}
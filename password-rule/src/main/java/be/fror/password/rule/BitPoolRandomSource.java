@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Random;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A <tt>RandomSource</tt> drawing random bytes in bulk from a <tt>Random</tt> and using only as
+ * many of their bits as needed.
+ *
+ * <p>
+ * <tt>Random.nextInt(int)</tt> consumes at least 32 random bits per call, and each call to a
+ * <tt>SecureRandom</tt> goes through its synchronized engine. Here, the bytes are fetched with a
+ * single call to <tt>Random.nextBytes</tt> per pool, and each integer in <tt>[0, bound)</tt> is
+ * made of the <tt>ceil(log2(bound))</tt> next bits of the pool. Values greater than or equal to
+ * <tt>bound</tt> are rejected and drawn again, so every integer stays exactly as likely as the
+ * others.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@NotThreadSafe
+final class BitPoolRandomSource implements RandomSource {
+
+  /**
+   * The size of the pool used to generate many passwords.
+   */
+  static final int BATCH_POOL_SIZE = 512;
+
+  /**
+   * Returns the size of a pool holding, most of the time, enough bits to generate a single
+   * password of <tt>length</tt> characters: up to 8 bits to pick each character and as much to
+   * shuffle them, including the rejected values.
+   */
+  static int poolSizeFor(final int length) {
+    return Math.max(16, Math.min(2 * length, BATCH_POOL_SIZE));
+  }
+
+  private final Random random;
+  private final byte[] pool;
+  private int position;
+
+  /**
+   * The unused bits fetched from the pool, in the <tt>available</tt> lowest bits.
+   */
+  private long bits;
+  private int available;
+
+  BitPoolRandomSource(final Random random, final int poolSize) {
+    checkArgument(poolSize > 0, "poolSize (%s) must be positive", poolSize);
+    this.random = checkNotNull(random, "random must not be null");
+    // The pool is consumed by words of 64 bits.
+    final int words = (poolSize + Long.BYTES - 1) / Long.BYTES;
+    this.pool = new byte[words * Long.BYTES];
+    this.position = this.pool.length;
+  }
+
+  @Override
+  public int nextInt(final int bound) {
+    checkArgument(bound > 0, "bound (%s) must be positive", bound);
+    final int size = Integer.SIZE - Integer.numberOfLeadingZeros(bound - 1);
+    final long mask = (1L << size) - 1;
+    while (true) {
+      final int value;
+      if (this.available >= size) {
+        value = (int) (this.bits & mask);
+        this.bits >>>= size;
+        this.available -= size;
+      } else {
+        // Completes the remaining bits with the lowest bits of the next word.
+        final long word = nextWord();
+        final int missing = size - this.available;
+        value = (int) ((this.bits | word << this.available) & mask);
+        this.bits = word >>> missing;
+        this.available = Long.SIZE - missing;
+      }
+      if (value < bound) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Returns the next 64 bits of the pool, drawing a new pool when it's exhausted.
+   */
+  private long nextWord() {
+    if (this.position == this.pool.length) {
+      this.random.nextBytes(this.pool);
+      this.position = 0;
+    }
+    final byte[] p = this.pool;
+    final int i = this.position;
+    this.position = i + Long.BYTES;
+    return (p[i] & 0xFFL)
+        | (p[i + 1] & 0xFFL) << 8
+        | (p[i + 2] & 0xFFL) << 16
+        | (p[i + 3] & 0xFFL) << 24
+        | (p[i + 4] & 0xFFL) << 32
+        | (p[i + 5] & 0xFFL) << 40
+        | (p[i + 6] & 0xFFL) << 48
+        | (p[i + 7] & 0xFFL) << 56;
+  }
+}
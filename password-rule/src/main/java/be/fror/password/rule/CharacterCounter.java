@@ -0,0 +1,295 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import com.google.common.base.Ascii;
+import com.google.common.base.CharMatcher;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Counts, in a single pass, the characters of a password matched by each of several
+ * <tt>CharMatcher</tt>s.
+ *
+ * <p>
+ * Each matcher is given a slot: after a call to <tt>count</tt>, the slot <tt>i</tt> of the counts
+ * array contains the number of characters matched by the <tt>i</tt>-th matcher. Slots of
+ * <tt>UnicodeCharMatcher</tt>s count code points instead, like <tt>UnicodeCharMatcher.countIn</tt>.
+ *
+ * <p>
+ * Long runs of ASCII bytes are counted by an <tt>AsciiCountingEngine</tt> when one is available.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@Immutable
+final class CharacterCounter {
+
+  private static final int ASCII_SIZE = Ascii.MAX + 1;
+
+  private final CharMatcher[] matchers;
+
+  /**
+   * The matchers counting code points rather than characters, <tt>null</tt> for the other slots.
+   */
+  private final UnicodeCharMatcher[] codePointMatchers;
+  private final boolean countsCodePoints;
+
+  /**
+   * For each ASCII character, the bits of the slots matching it; <tt>null</tt> if there are more
+   * than 64 slots.
+   */
+  private final long[] asciiSlots;
+
+  /**
+   * The engine counting long runs of ASCII bytes, <tt>null</tt> if none is available.
+   */
+  @Nullable
+  private final AsciiCountingEngine engine;
+
+  CharacterCounter(final List<CharMatcher> matchers) {
+    this(matchers, true);
+  }
+
+  /**
+   * @param matchers the matchers of each slot
+   * @param vectorized whether to use an <tt>AsciiCountingEngine</tt> when available
+   */
+  CharacterCounter(final List<CharMatcher> matchers, final boolean vectorized) {
+    this.matchers = matchers.toArray(new CharMatcher[matchers.size()]);
+    this.engine = vectorized ? AsciiCountingEngine.forMatchers(this.matchers) : null;
+    this.codePointMatchers = new UnicodeCharMatcher[this.matchers.length];
+    boolean codePoints = false;
+    for (int slot = 0; slot < this.matchers.length; slot++) {
+      if (this.matchers[slot] instanceof UnicodeCharMatcher) {
+        this.codePointMatchers[slot] = (UnicodeCharMatcher) this.matchers[slot];
+        codePoints = true;
+      }
+    }
+    this.countsCodePoints = codePoints;
+    if (this.matchers.length <= Long.SIZE) {
+      this.asciiSlots = new long[ASCII_SIZE];
+      for (int slot = 0; slot < this.matchers.length; slot++) {
+        for (char c = 0; c < ASCII_SIZE; c++) {
+          if (this.matchers[slot].matches(c)) {
+            this.asciiSlots[c] |= 1L << slot;
+          }
+        }
+      }
+    } else {
+      this.asciiSlots = null;
+    }
+  }
+
+  /**
+   * Returns the number of slots, which is also the minimum size of the counts arrays.
+   *
+   * @return the number of slots of this counter
+   */
+  int size() {
+    return this.matchers.length;
+  }
+
+  /**
+   * Returns the minimum number of bytes for which <tt>countAscii</tt> uses an
+   * <tt>AsciiCountingEngine</tt>, or <tt>Integer.MAX_VALUE</tt> if none is available.
+   *
+   * @return the length from which the ASCII bytes are counted in bulk
+   */
+  int minimumBulkLength() {
+    return this.engine == null ? Integer.MAX_VALUE : this.engine.minimumLength();
+  }
+
+  /**
+   * Counts the characters of <tt>chars</tt> matched by each slot.
+   *
+   * @param chars the characters to count
+   * @param counts the array receiving the counts; its previous content is discarded.
+   */
+  void count(final CharSequence chars, final int[] counts) {
+    final int slots = this.matchers.length;
+    Arrays.fill(counts, 0, slots, 0);
+    if (slots == 0) {
+      return;
+    }
+    for (int i = 0, l = chars.length(); i < l; i++) {
+      final char c = chars.charAt(i);
+      if (this.countsCodePoints && Character.isHighSurrogate(c) && i + 1 < l && Character.isLowSurrogate(chars.charAt(i + 1))) {
+        countSurrogatePair(c, chars.charAt(++i), counts);
+      } else {
+        countChar(c, counts);
+      }
+    }
+  }
+
+  /**
+   * Counts the characters of the UTF-8 encoded <tt>bytes[offset, offset + length)</tt> matched by
+   * each slot, decoding the non-ASCII sequences one code point at a time.
+   *
+   * <p>
+   * The counts are the same as if the bytes had been decoded into a <tt>String</tt> before being
+   * given to <tt>count(CharSequence, int[])</tt>.
+   *
+   * @param bytes the array containing the UTF-8 encoded characters to count
+   * @param offset the index of the first byte to count
+   * @param length the number of bytes to count
+   * @param counts the array receiving the counts; its previous content is discarded.
+   * @return the number of UTF-16 characters decoded, or <tt>-1</tt> if the bytes are not valid
+   * UTF-8, in which case the counts are meaningless
+   */
+  int countUtf8(final byte[] bytes, final int offset, final int length, final int[] counts) {
+    Arrays.fill(counts, 0, this.matchers.length, 0);
+    if (this.engine != null && length >= this.engine.minimumLength() && this.engine.isAscii(bytes, offset, length)) {
+      this.engine.countAscii(bytes, offset, length, counts);
+      return length;
+    }
+    final int end = offset + length;
+    int chars = 0;
+    int i = offset;
+    while (i < end) {
+      final int b0 = bytes[i];
+      if (b0 >= 0) {
+        countChar((char) b0, counts);
+        chars++;
+        i++;
+        continue;
+      }
+      final int lead = b0 & 0xFF;
+      final int codePoint;
+      if (lead >= 0xC2 && lead <= 0xDF && i + 1 < end) {
+        codePoint = (lead & 0x1F) << 6 | continuation(bytes[i + 1]);
+        i += 2;
+      } else if (lead >= 0xE0 && lead <= 0xEF && i + 2 < end) {
+        codePoint = (lead & 0x0F) << 12 | continuation(bytes[i + 1]) << 6 | continuation(bytes[i + 2]);
+        if (codePoint < 0x800 || Character.isSurrogate((char) codePoint)) {
+          return -1;
+        }
+        i += 3;
+      } else if (lead >= 0xF0 && lead <= 0xF4 && i + 3 < end) {
+        codePoint = (lead & 0x07) << 18 | continuation(bytes[i + 1]) << 12
+            | continuation(bytes[i + 2]) << 6 | continuation(bytes[i + 3]);
+        if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint > Character.MAX_CODE_POINT) {
+          return -1;
+        }
+        i += 4;
+      } else {
+        return -1;
+      }
+      if (codePoint < 0) {
+        return -1;
+      }
+      if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+        countChar((char) codePoint, counts);
+        chars++;
+      } else {
+        final char high = Character.highSurrogate(codePoint);
+        final char low = Character.lowSurrogate(codePoint);
+        if (this.countsCodePoints) {
+          countSurrogatePair(high, low, counts);
+        } else {
+          countChar(high, counts);
+          countChar(low, counts);
+        }
+        chars += 2;
+      }
+    }
+    return chars;
+  }
+
+  /**
+   * Returns the 6 bits of payload of a UTF-8 continuation byte, or <tt>-1</tt>, which makes any
+   * code point built with it negative, if <tt>b</tt> is not a continuation byte.
+   */
+  private static int continuation(final byte b) {
+    return (b & 0xC0) == 0x80 ? b & 0x3F : -1;
+  }
+
+  private void countChar(final char c, final int[] counts) {
+    final long[] ascii = this.asciiSlots;
+    if (c < ASCII_SIZE && ascii != null) {
+      for (long bits = ascii[c]; bits != 0; bits &= bits - 1) {
+        counts[Long.numberOfTrailingZeros(bits)]++;
+      }
+    } else {
+      for (int slot = 0, slots = this.matchers.length; slot < slots; slot++) {
+        if (this.matchers[slot].matches(c)) {
+          counts[slot]++;
+        }
+      }
+    }
+  }
+
+  private void countSurrogatePair(final char high, final char low, final int[] counts) {
+    final int codePoint = Character.toCodePoint(high, low);
+    for (int slot = 0, slots = this.matchers.length; slot < slots; slot++) {
+      if (this.codePointMatchers[slot] != null) {
+        if (this.codePointMatchers[slot].matchesCodePoint(codePoint)) {
+          counts[slot]++;
+        }
+      } else {
+        if (this.matchers[slot].matches(high)) {
+          counts[slot]++;
+        }
+        if (this.matchers[slot].matches(low)) {
+          counts[slot]++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts the characters of <tt>bytes[offset, offset + length)</tt> matched by each slot.
+   *
+   * <p>
+   * All the bytes must be ASCII characters, that is in the range <tt>[0, 127]</tt>. Only the
+   * bytes of heap buffers of at least <tt>minimumBulkLength()</tt> bytes are counted in bulk.
+   *
+   * @param bytes the buffer containing the ASCII characters to count
+   * @param offset the absolute index of the first byte to count
+   * @param length the number of bytes to count
+   * @param counts the array receiving the counts; its previous content is discarded.
+   */
+  void countAscii(final ByteBuffer bytes, final int offset, final int length, final int[] counts) {
+    final int slots = this.matchers.length;
+    Arrays.fill(counts, 0, slots, 0);
+    if (slots == 0) {
+      return;
+    }
+    if (length >= minimumBulkLength() && bytes.hasArray()) {
+      this.engine.countAscii(bytes.array(), bytes.arrayOffset() + offset, length, counts);
+      return;
+    }
+    final long[] ascii = this.asciiSlots;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      final char c = (char) bytes.get(i);
+      if (ascii != null) {
+        for (long bits = ascii[c]; bits != 0; bits &= bits - 1) {
+          counts[Long.numberOfTrailingZeros(bits)]++;
+        }
+      } else {
+        for (int slot = 0; slot < slots; slot++) {
+          if (this.matchers[slot].matches(c)) {
+            counts[slot]++;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,661 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.primitives.Ints;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The compiled form of the rules of a <tt>Ruler</tt>.
+ *
+ * <p>
+ * All the <tt>CountingRule</tt>s are merged so that the password is read only once: each distinct
+ * matcher is given a slot in a <tt>CharacterCounter</tt> and the rules are then evaluated against
+ * the counts. Other rules are validated as usual, on a <tt>Password</tt> instance.
+ *
+ * <p>
+ * The rules are evaluated in their original order so that the failures are reported in the same
+ * order as if each rule had validated the password on its own. In fail-fast mode, the rules are
+ * evaluated by units, cheapest first, or in an order adapted to the observed costs and rejection
+ * rates.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@Immutable
+final class CompiledRules {
+
+  private static final int NO_SLOT = -1;
+
+  /**
+   * The evaluation unit of the rules only depending on the length of the password.
+   */
+  private static final int LENGTH_UNIT = 0;
+  /**
+   * The evaluation unit of the rules depending on the characters of the password, which all share
+   * the same count.
+   */
+  private static final int CHARACTER_UNIT = 1;
+  /**
+   * The evaluation unit of the first custom rule; each custom rule is its own unit.
+   */
+  private static final int FIRST_CUSTOM_UNIT = 2;
+
+  static CompiledRules compile(final Iterable<Rule> rules) {
+    return compile(rules, false);
+  }
+
+  /**
+   * Compiles <tt>rules</tt>.
+   *
+   * @param rules the rules to compile
+   * @param adaptive whether the fail-fast evaluations reorder the rules according to their
+   * observed cost and rejection rate
+   */
+  static CompiledRules compile(final Iterable<Rule> rules, final boolean adaptive) {
+    final Map<CharMatcher, Integer> slotsByMatcher = new LinkedHashMap<>();
+    final List<Rule> allRules = new ArrayList<>();
+    final int[] slots = assignSlots(rules, slotsByMatcher, allRules);
+    return new CompiledRules(
+        allRules.toArray(new Rule[allRules.size()]),
+        slots,
+        new CharacterCounter(new ArrayList<>(slotsByMatcher.keySet())),
+        adaptive);
+  }
+
+  /**
+   * Compiles each set of rules of <tt>ruleSets</tt>, all the compiled rules sharing the same
+   * <tt>CharacterCounter</tt> so that the counts of a password can be computed once for all of
+   * them.
+   *
+   * @param ruleSets the sets of rules to compile
+   * @return the compiled rules of each set, in the same order
+   */
+  static List<CompiledRules> compileSharingCounts(final List<? extends Iterable<Rule>> ruleSets) {
+    final Map<CharMatcher, Integer> slotsByMatcher = new LinkedHashMap<>();
+    final List<Rule[]> allRules = new ArrayList<>(ruleSets.size());
+    final List<int[]> allSlots = new ArrayList<>(ruleSets.size());
+    for (Iterable<Rule> rules : ruleSets) {
+      final List<Rule> ruleList = new ArrayList<>();
+      allSlots.add(assignSlots(rules, slotsByMatcher, ruleList));
+      allRules.add(ruleList.toArray(new Rule[ruleList.size()]));
+    }
+    final CharacterCounter counter = new CharacterCounter(new ArrayList<>(slotsByMatcher.keySet()));
+    final List<CompiledRules> compiled = new ArrayList<>(ruleSets.size());
+    for (int i = 0; i < ruleSets.size(); i++) {
+      compiled.add(new CompiledRules(allRules.get(i), allSlots.get(i), counter, false));
+    }
+    return compiled;
+  }
+
+  /**
+   * Adds <tt>rules</tt> to <tt>allRules</tt> and returns their slots, adding the matchers not yet
+   * in <tt>slotsByMatcher</tt> to it.
+   */
+  private static int[] assignSlots(final Iterable<Rule> rules, final Map<CharMatcher, Integer> slotsByMatcher, final List<Rule> allRules) {
+    final List<Integer> slots = new ArrayList<>();
+    for (Rule rule : rules) {
+      allRules.add(rule);
+      int slot = NO_SLOT;
+      if (rule instanceof CountingRule) {
+        final CharMatcher matcher = ((CountingRule) rule).getCountedCharacters();
+        if (matcher != null) {
+          Integer existingSlot = slotsByMatcher.get(matcher);
+          if (existingSlot == null) {
+            existingSlot = slotsByMatcher.size();
+            slotsByMatcher.put(matcher, existingSlot);
+          }
+          slot = existingSlot;
+        }
+      }
+      slots.add(slot);
+    }
+    return Ints.toArray(slots);
+  }
+
+  private final Rule[] rules;
+  /**
+   * The rules as <tt>CountingRule</tt>s, or <tt>null</tt> for the custom rules.
+   */
+  private final CountingRule[] countingRules;
+  private final int[] slots;
+  private final boolean hasCustomRules;
+  private final CharacterCounter counter;
+  private final ThreadLocal<int[]> counts;
+
+  private final int[] lengthRules;
+  private final int[] characterRules;
+  private final int[] customRules;
+  /**
+   * The order of the evaluation units in fail-fast mode when not adaptive: cheapest first.
+   */
+  private final int[] staticOrder;
+  @Nullable
+  private final AdaptiveOrdering adaptiveOrdering;
+
+  private CompiledRules(final Rule[] rules, final int[] slots, final CharacterCounter counter, final boolean adaptive) {
+    this.rules = rules;
+    this.slots = slots;
+    this.counter = counter;
+    this.countingRules = new CountingRule[rules.length];
+    boolean custom = false;
+    for (int i = 0; i < rules.length; i++) {
+      if (rules[i] instanceof CountingRule) {
+        this.countingRules[i] = (CountingRule) rules[i];
+      } else {
+        custom = true;
+      }
+    }
+    this.hasCustomRules = custom;
+    final int size = counter.size();
+    this.counts = ThreadLocal.withInitial(() -> new int[size]);
+
+    final List<Integer> lengthIndexes = new ArrayList<>();
+    final List<Integer> characterIndexes = new ArrayList<>();
+    final List<Integer> customIndexes = new ArrayList<>();
+    for (int i = 0; i < rules.length; i++) {
+      if (this.countingRules[i] == null) {
+        customIndexes.add(i);
+      } else if (slots[i] == NO_SLOT) {
+        lengthIndexes.add(i);
+      } else {
+        characterIndexes.add(i);
+      }
+    }
+    this.lengthRules = Ints.toArray(lengthIndexes);
+    this.characterRules = Ints.toArray(characterIndexes);
+    this.customRules = Ints.toArray(customIndexes);
+    final List<Integer> units = new ArrayList<>();
+    if (this.lengthRules.length > 0) {
+      units.add(LENGTH_UNIT);
+    }
+    if (this.characterRules.length > 0) {
+      units.add(CHARACTER_UNIT);
+    }
+    for (int i = 0; i < this.customRules.length; i++) {
+      units.add(FIRST_CUSTOM_UNIT + i);
+    }
+    this.staticOrder = Ints.toArray(units);
+    this.adaptiveOrdering = adaptive
+        ? new AdaptiveOrdering(this.staticOrder, FIRST_CUSTOM_UNIT + this.customRules.length)
+        : null;
+  }
+
+  /**
+   * Counts the characters of <tt>password</tt> in the scratch array of the current thread.
+   *
+   * <p>
+   * The returned array must not be used anymore once a custom rule is called since it may
+   * validate another password with this same instance.
+   */
+  int[] count(final CharSequence password) {
+    final int[] scratch = this.counts.get();
+    this.counter.count(password, scratch);
+    return scratch;
+  }
+
+  private int countOf(final int[] counts, final int rule) {
+    final int slot = this.slots[rule];
+    return slot == NO_SLOT ? 0 : counts[slot];
+  }
+
+  /**
+   * Validates <tt>password</tt> against all the rules, reading its characters only once for all
+   * the built-in rules.
+   *
+   * @param password the password to validate
+   * @return the aggregated result of all the rules
+   */
+  RuleResult validate(final CharSequence password) {
+    final int[] counts = count(password);
+    return validate(password.length(), counts, password);
+  }
+
+  /**
+   * Returns the minimum length of the ASCII passwords whose characters are counted in bulk by
+   * <tt>validateAscii</tt> when they are in a heap buffer.
+   *
+   * @return the length from which the ASCII bytes are counted in bulk, or
+   * <tt>Integer.MAX_VALUE</tt> if they never are
+   */
+  int minimumBulkLength() {
+    return this.counter.minimumBulkLength();
+  }
+
+  /**
+   * Validates the password made of the ASCII characters <tt>bytes[offset, offset + length)</tt>
+   * against all the rules, without decoding it unless custom rules are defined.
+   *
+   * @param bytes the buffer containing the password
+   * @param offset the absolute index of the first byte of the password in <tt>bytes</tt>
+   * @param length the length of the password, in bytes
+   * @param failFast whether to return the result of the first failing rule only
+   * @return the aggregated result of all the rules, or the result of the first failing rule in
+   * fail-fast mode
+   */
+  RuleResult validateAscii(final ByteBuffer bytes, final int offset, final int length, final boolean failFast) {
+    final int[] counts = this.counts.get();
+    this.counter.countAscii(bytes, offset, length, counts);
+    if (failFast) {
+      return validateFailFast(length, counts, () -> decodeAscii(bytes, offset, length));
+    }
+    return validate(length, counts, this.hasCustomRules ? decodeAscii(bytes, offset, length) : null);
+  }
+
+  private static CharSequence decodeAscii(final ByteBuffer bytes, final int offset, final int length) {
+    final char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = (char) bytes.get(offset + i);
+    }
+    return CharBuffer.wrap(chars);
+  }
+
+  /**
+   * Validates the UTF-8 encoded password <tt>bytes[offset, offset + length)</tt> against all the
+   * rules, decoding it only if custom rules are defined.
+   *
+   * <p>
+   * Malformed input is decoded like <tt>new String(bytes, UTF_8)</tt> would, replacing the
+   * malformed sequences, before being validated.
+   *
+   * @param bytes the array containing the password
+   * @param offset the index of the first byte of the password in <tt>bytes</tt>
+   * @param length the length of the password, in bytes
+   * @param failFast whether to return the result of the first failing rule only
+   * @return the aggregated result of all the rules, or the result of the first failing rule in
+   * fail-fast mode
+   */
+  RuleResult validateUtf8(final byte[] bytes, final int offset, final int length, final boolean failFast) {
+    final int[] counts = this.counts.get();
+    final int chars = this.counter.countUtf8(bytes, offset, length, counts);
+    if (chars < 0) {
+      final String password = new String(bytes, offset, length, StandardCharsets.UTF_8);
+      return failFast ? validateFailFast(password) : validate(password);
+    }
+    if (failFast) {
+      return validateFailFast(chars, counts, () -> new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+    return validate(chars, counts, this.hasCustomRules ? new String(bytes, offset, length, StandardCharsets.UTF_8) : null);
+  }
+
+  /**
+   * Validates a password given its length and the counts of its characters, in the fixed
+   * fail-fast order, getting the password from <tt>password</tt> only if the custom rules are
+   * reached.
+   */
+  RuleResult validateFailFast(final int length, final int[] counts, final Supplier<? extends CharSequence> password) {
+    for (int i : this.lengthRules) {
+      if (!this.countingRules[i].accepts(length, 0)) {
+        return this.countingRules[i].validate(length, 0);
+      }
+    }
+    for (int i : this.characterRules) {
+      final int count = counts[this.slots[i]];
+      if (!this.countingRules[i].accepts(length, count)) {
+        return this.countingRules[i].validate(length, count);
+      }
+    }
+    if (this.hasCustomRules) {
+      final Password pwd = Password.of(password.get());
+      for (int i : this.customRules) {
+        final RuleResult result = this.rules[i].validate(pwd);
+        if (!result.isValid()) {
+          return result;
+        }
+      }
+    }
+    return RuleResult.ok();
+  }
+
+  /**
+   * Returns whether a password is accepted by all the rules given its length and the counts of its
+   * characters, in the fixed fail-fast order.
+   *
+   * @param password the password, only used by custom rules
+   */
+  boolean isValid(final int length, final int[] counts, final CharSequence password) {
+    for (int i : this.lengthRules) {
+      if (!this.countingRules[i].accepts(length, 0)) {
+        return false;
+      }
+    }
+    for (int i : this.characterRules) {
+      if (!this.countingRules[i].accepts(length, counts[this.slots[i]])) {
+        return false;
+      }
+    }
+    if (this.hasCustomRules) {
+      final Password pwd = Password.of(password);
+      for (int i : this.customRules) {
+        if (!this.rules[i].validate(pwd).isValid()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Validates a password given its length and the counts of its characters.
+   *
+   * @param password the password, only used by custom rules: it may be <tt>null</tt> if there are
+   * none.
+   */
+  RuleResult validate(final int length, final int[] counts, @Nullable final CharSequence password) {
+    if (!this.hasCustomRules) {
+      // The results of the built-in rules are shared: a single failure is returned as is.
+      int failing = -1;
+      RuleResult[] failures = null;
+      for (int i = 0; i < this.rules.length; i++) {
+        if (!this.countingRules[i].accepts(length, countOf(counts, i))) {
+          if (failing == -1) {
+            failing = i;
+            continue;
+          }
+          if (failures == null) {
+            failures = new RuleResult[this.rules.length];
+            failures[failing] = this.countingRules[failing].validate(length, countOf(counts, failing));
+          }
+          failures[i] = this.countingRules[i].validate(length, countOf(counts, i));
+        }
+      }
+      if (failures != null) {
+        return merge(failures);
+      }
+      return failing == -1 ? RuleResult.ok() : this.countingRules[failing].validate(length, countOf(counts, failing));
+    }
+    RuleResult[] failures = validateCountingRules(length, counts);
+    final Password pwd = Password.of(password);
+    for (int i = 0; i < this.rules.length; i++) {
+      if (this.countingRules[i] == null) {
+        final RuleResult result = this.rules[i].validate(pwd);
+        if (!result.isValid()) {
+          if (failures == null) {
+            failures = new RuleResult[this.rules.length];
+          }
+          failures[i] = result;
+        }
+      }
+    }
+    return merge(failures);
+  }
+
+  /**
+   * Validates <tt>password</tt> against all the rules, the custom rules being all started at once
+   * on <tt>executor</tt>.
+   *
+   * <p>
+   * The built-in rules are evaluated on the calling thread. In fail-fast mode, the custom rules
+   * are not started if a built-in rule fails.
+   *
+   * @param password the password to validate
+   * @param executor the executor on which the custom rules are run
+   * @param failFast whether to complete with the result of the first failing rule only
+   * @return a future completed with the aggregated result of all the rules
+   */
+  CompletableFuture<RuleResult> validateAsync(final CharSequence password, final Executor executor, final boolean failFast) {
+    if (!this.hasCustomRules) {
+      return CompletableFuture.completedFuture(failFast ? validateFailFast(password) : validate(password));
+    }
+    final RuleResult[] countingFailures = validateCountingRules(password.length(), count(password));
+    if (failFast && countingFailures != null) {
+      return CompletableFuture.completedFuture(validateFailFast(password));
+    }
+    final Password pwd = Password.of(password);
+    final List<CompletableFuture<RuleResult>> futures = new ArrayList<>(this.customRules.length);
+    for (int i : this.customRules) {
+      futures.add(AsyncRule.of(this.rules[i]).validateAsync(pwd, executor));
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+      RuleResult[] failures = countingFailures;
+      for (int k = 0; k < futures.size(); k++) {
+        final RuleResult result = futures.get(k).join();
+        if (!result.isValid()) {
+          if (failFast) {
+            return result;
+          }
+          if (failures == null) {
+            failures = new RuleResult[this.rules.length];
+          }
+          failures[this.customRules[k]] = result;
+        }
+      }
+      return merge(failures);
+    });
+  }
+
+  /**
+   * Evaluates the built-in rules and returns their failures indexed by rule, or <tt>null</tt> if
+   * none failed.
+   */
+  @Nullable
+  private RuleResult[] validateCountingRules(final int length, final int[] counts) {
+    RuleResult[] failures = null;
+    for (int i = 0; i < this.rules.length; i++) {
+      final CountingRule rule = this.countingRules[i];
+      if (rule != null && !rule.accepts(length, countOf(counts, i))) {
+        if (failures == null) {
+          failures = new RuleResult[this.rules.length];
+        }
+        failures[i] = rule.validate(length, countOf(counts, i));
+      }
+    }
+    return failures;
+  }
+
+  /**
+   * Merges the failures indexed by rule, in the order of the rules.
+   */
+  private static RuleResult merge(@Nullable final RuleResult[] failures) {
+    if (failures == null) {
+      return RuleResult.ok();
+    }
+    final RuleResult.FailedResult failedResult = RuleResult.failed();
+    for (RuleResult failure : failures) {
+      if (failure != null) {
+        failedResult.addFailures(failure.getFailures());
+      }
+    }
+    return failedResult;
+  }
+
+  /**
+   * Returns whether <tt>password</tt> is accepted by all the rules.
+   *
+   * <p>
+   * The rules are evaluated by units: the rules depending only on the length, then the character
+   * rules and finally each custom rule, unless the order is adaptive. The evaluation stops at the
+   * first failing rule. No object is allocated unless custom rules have to be called or the
+   * evaluation is sampled to adapt the order.
+   *
+   * @param password the password to validate
+   * @return <tt>true</tt> if all the rules accept <tt>password</tt>, <tt>false</tt> otherwise
+   */
+  boolean isValid(final CharSequence password) {
+    if (this.adaptiveOrdering != null && this.adaptiveOrdering.shouldSample()) {
+      return validateSampled(password).isValid();
+    }
+    final int length = password.length();
+    Password pwd = null;
+    for (int unit : order()) {
+      switch (unit) {
+        case LENGTH_UNIT:
+          for (int i : this.lengthRules) {
+            if (!this.countingRules[i].accepts(length, 0)) {
+              return false;
+            }
+          }
+          break;
+        case CHARACTER_UNIT:
+          final int[] counts = count(password);
+          for (int i : this.characterRules) {
+            if (!this.countingRules[i].accepts(length, counts[this.slots[i]])) {
+              return false;
+            }
+          }
+          break;
+        default:
+          if (pwd == null) {
+            pwd = Password.of(password);
+          }
+          if (!this.rules[this.customRules[unit - FIRST_CUSTOM_UNIT]].validate(pwd).isValid()) {
+            return false;
+          }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Validates <tt>password</tt> and returns the result of the first failing rule.
+   *
+   * <p>
+   * The rules are evaluated in the same order as in <tt>isValid(CharSequence)</tt>.
+   *
+   * @param password the password to validate
+   * @return the result of the first failing rule, or <tt>RuleResult.ok()</tt> if all the rules
+   * accept <tt>password</tt>
+   */
+  RuleResult validateFailFast(final CharSequence password) {
+    if (this.adaptiveOrdering != null && this.adaptiveOrdering.shouldSample()) {
+      return validateSampled(password);
+    }
+    final int length = password.length();
+    final Password pwd = this.hasCustomRules ? Password.of(password) : null;
+    for (int unit : order()) {
+      final RuleResult result = validateUnit(unit, password, length, pwd);
+      if (result != null) {
+        return result;
+      }
+    }
+    return RuleResult.ok();
+  }
+
+  private int[] order() {
+    return this.adaptiveOrdering == null ? this.staticOrder : this.adaptiveOrdering.order();
+  }
+
+  /**
+   * Evaluates all the units, timing them for the adaptive ordering, and returns the result of the
+   * first failing rule in the current order.
+   */
+  private RuleResult validateSampled(final CharSequence password) {
+    final int length = password.length();
+    final Password pwd = this.hasCustomRules ? Password.of(password) : null;
+    RuleResult firstFailure = null;
+    for (int unit : this.adaptiveOrdering.order()) {
+      final long start = System.nanoTime();
+      final RuleResult result = validateUnit(unit, password, length, pwd);
+      this.adaptiveOrdering.record(unit, System.nanoTime() - start, result != null);
+      if (firstFailure == null) {
+        firstFailure = result;
+      }
+    }
+    this.adaptiveOrdering.sampled();
+    return firstFailure == null ? RuleResult.ok() : firstFailure;
+  }
+
+  /**
+   * Returns the result of the first failing rule of <tt>unit</tt>, or <tt>null</tt> if all its
+   * rules accept the password.
+   */
+  @Nullable
+  private RuleResult validateUnit(final int unit, final CharSequence password, final int length, @Nullable final Password pwd) {
+    switch (unit) {
+      case LENGTH_UNIT:
+        for (int i : this.lengthRules) {
+          if (!this.countingRules[i].accepts(length, 0)) {
+            return this.countingRules[i].validate(length, 0);
+          }
+        }
+        return null;
+      case CHARACTER_UNIT:
+        final int[] counts = count(password);
+        for (int i : this.characterRules) {
+          final int count = counts[this.slots[i]];
+          if (!this.countingRules[i].accepts(length, count)) {
+            return this.countingRules[i].validate(length, count);
+          }
+        }
+        return null;
+      default:
+        final RuleResult result = this.rules[this.customRules[unit - FIRST_CUSTOM_UNIT]].validate(pwd);
+        return result.isValid() ? null : result;
+    }
+  }
+
+  /**
+   * Returns the compiled rules, in their original order.
+   */
+  List<Rule> getRules() {
+    return Arrays.asList(this.rules.clone());
+  }
+
+  /**
+   * Returns the current order of the evaluation units in fail-fast mode.
+   */
+  @VisibleForTesting
+  int[] getEvaluationOrder() {
+    return order().clone();
+  }
+
+  /**
+   * Returns the bits of the rules failing to validate <tt>password</tt>.
+   *
+   * @param password the password to validate
+   * @return a mask where the bit <tt>i</tt> is set if the <tt>i</tt>-th rule failed
+   * @see Ruler#getFailureMask(CharSequence)
+   */
+  long getFailureMask(final CharSequence password) {
+    final int length = password.length();
+    long mask = 0L;
+    final int[] counts = count(password);
+    for (int i = 0; i < this.rules.length; i++) {
+      final CountingRule rule = this.countingRules[i];
+      if (rule != null && !rule.accepts(length, countOf(counts, i))) {
+        mask |= bit(i);
+      }
+    }
+    if (this.hasCustomRules) {
+      final Password pwd = Password.of(password);
+      for (int i = 0; i < this.rules.length; i++) {
+        if (this.countingRules[i] == null && !this.rules[i].validate(pwd).isValid()) {
+          mask |= bit(i);
+        }
+      }
+    }
+    return mask;
+  }
+
+  private static long bit(final int rule) {
+    return 1L << Math.min(rule, Long.SIZE - 1);
+  }
+}
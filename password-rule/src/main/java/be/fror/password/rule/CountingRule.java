@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import com.google.common.base.CharMatcher;
+
+import javax.annotation.Nullable;
+
+/**
+ * A built-in rule whose result only depends on the length of the password and on the number of
+ * its characters matched by a given <tt>CharMatcher</tt>.
+ *
+ * <p>
+ * Such rules are merged by <tt>Ruler</tt> so that a password is scanned only once whatever the
+ * number of rules.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+interface CountingRule extends Rule {
+
+  /**
+   * Returns the matcher of the characters to count, or <tt>null</tt> if this rule only depends on
+   * the length of the password.
+   *
+   * @return the matcher of the characters to count, or <tt>null</tt>
+   */
+  @Nullable
+  public CharMatcher getCountedCharacters();
+
+  /**
+   * Returns whether a password is accepted by this rule, given its length and the number of its
+   * characters matched by <tt>getCountedCharacters()</tt>.
+   *
+   * <p>
+   * Implementations must not allocate any object.
+   *
+   * @param length the length of the password
+   * @param count the number of characters matched, or <tt>0</tt> if no matcher is defined
+   * @return <tt>true</tt> if <tt>validate(length, count)</tt> would be valid, <tt>false</tt>
+   * otherwise
+   */
+  public boolean accepts(final int length, final int count);
+
+  /**
+   * Validates a password given its length and the number of its characters matched by
+   * <tt>getCountedCharacters()</tt>.
+   *
+   * <p>
+   * The failures only depend on the configuration of the rule: implementations should build them
+   * once, frozen, and return them without allocating anything.
+   *
+   * @param length the length of the password
+   * @param count the number of characters matched, or <tt>0</tt> if no matcher is defined
+   * @return the same result as <tt>validate(Password)</tt> would have returned
+   */
+  public RuleResult validate(final int length, final int count);
+
+}
@@ -21,18 +21,23 @@ import com.google.common.base.CharMatcher;
  *
  * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
  */
-class DefaultCharacterRule implements CharacterRule {
+class DefaultCharacterRule implements CharacterRule, CountingRule {
 
   private final CharMatcher matcher;
   private final String characters;
   private final int numberOfCharacters;
   private final String errorCode;
+  private final RuleResult failure;
 
   DefaultCharacterRule(String characters, CharMatcher matcher, int numberOfCharacters, String errorCode) {
     this.characters = characters;
     this.numberOfCharacters = numberOfCharacters;
     this.matcher = matcher;
     this.errorCode = errorCode;
+    this.failure = RuleResult.failed(this.errorCode,
+        "characters", characters,
+        "numberOfCharacters", numberOfCharacters
+    ).freeze();
   }
 
   @Override
@@ -45,15 +50,33 @@ class DefaultCharacterRule implements CharacterRule {
     return this.characters;
   }
 
+  @Override
+  public CharMatcher getCountedCharacters() {
+    return this.matcher;
+  }
+
   @Override
   public RuleResult validate(Password password) {
-    if (this.matcher.retainFrom(password.getPassword()).length() >= this.numberOfCharacters) {
+    final CharSequence pwd = password.getCharacters();
+    return validate(pwd.length(), this.matcher.countIn(pwd));
+  }
+
+  @Override
+  public boolean accepts(int length, int count) {
+    return count >= this.numberOfCharacters;
+  }
+
+  @Override
+  public RuleResult validate(int length, int count) {
+    if (accepts(length, count)) {
       return RuleResult.ok();
     } else {
-      return RuleResult.failed(this.errorCode,
-          "characters", this.characters,
-          "numberOfCharacters", this.numberOfCharacters
-      );
+      return this.failure;
     }
   }
+
+  @Override
+  public String toString() {
+    return this.errorCode + "(" + this.numberOfCharacters + ")";
+  }
 }
@@ -19,29 +19,59 @@ import static be.fror.password.rule.RuleResult.failed;
 import static be.fror.password.rule.RuleResult.ok;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.common.base.CharMatcher;
+
 /**
  *
  * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
  */
-class LengthRule implements Rule {
+class LengthRule implements CountingRule {
 
   private final int minimumLength;
   private final int maximumLength;
+  /**
+   * The failures only depend on the configuration, so they're built once and shared.
+   */
+  private final RuleResult tooShort;
+  private final RuleResult tooLong;
 
   LengthRule(final int minimumLength, final int maximumLength) {
     this.minimumLength = minimumLength;
     this.maximumLength = maximumLength;
+    this.tooShort = failed("length.tooShort", "minimumLength", minimumLength).freeze();
+    this.tooLong = failed("length.tooLong", "maximumLength", maximumLength).freeze();
+  }
+
+  int getMinimumLength() {
+    return this.minimumLength;
+  }
+
+  int getMaximumLength() {
+    return this.maximumLength;
   }
 
   @Override
   public RuleResult validate(final Password password) {
     checkNotNull(password);
-    String pwd = password.getPassword();
-    int length = pwd.length();
+    return validate(password.length(), 0);
+  }
+
+  @Override
+  public CharMatcher getCountedCharacters() {
+    return null;
+  }
+
+  @Override
+  public boolean accepts(final int length, final int count) {
+    return this.minimumLength <= length && length <= this.maximumLength;
+  }
+
+  @Override
+  public RuleResult validate(final int length, final int count) {
     if (length < this.minimumLength) {
-      return failed("length.tooShort", "minimumLength", this.minimumLength);
+      return this.tooShort;
     } else if (length > this.maximumLength) {
-      return failed("length.tooLong", "maximumLength", this.maximumLength);
+      return this.tooLong;
     } else {
       return ok();
     }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ObjLongConsumer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Validates each line of a file, memory-mapping it by windows.
+ *
+ * <p>
+ * The file is read as UTF-8. Lines are separated by <tt>'\n'</tt>, an eventual trailing
+ * <tt>'\r'</tt> being ignored. Lines made only of ASCII characters are handed directly as bytes to
+ * the compiled rules; the other lines are decoded one code point at a time while counting their
+ * characters, and only decoded entirely if custom rules are defined.
+ *
+ * <p>
+ * The characters of a mapped buffer can't be counted in bulk, so the long lines are first copied
+ * into a scratch array: its ASCII bytes are then counted by the <tt>AsciiCountingEngine</tt> of
+ * the rules, if any.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@NotThreadSafe
+final class MappedLineValidator {
+
+  /**
+   * The default maximum number of bytes mapped at once.
+   */
+  static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+  private final CompiledRules rules;
+  private final int windowSize;
+  private final boolean failFast;
+  private final ValidationSummary.Accumulator accumulator = new ValidationSummary.Accumulator();
+  private byte[] lineBuffer = new byte[64];
+  private ByteBuffer wrappedLineBuffer = ByteBuffer.wrap(this.lineBuffer);
+
+  /**
+   * @param rules the rules validating each line
+   * @param windowSize the maximum number of bytes mapped at once
+   * @param failFast whether to only report the first failing rule of each line
+   */
+  MappedLineValidator(final CompiledRules rules, final int windowSize, final boolean failFast) {
+    this.rules = rules;
+    this.windowSize = windowSize;
+    this.failFast = failFast;
+  }
+
+  /**
+   * Validates each line of <tt>file</tt> and gives the failing results to <tt>failureHandler</tt>
+   * along with the offset of the line in the file.
+   *
+   * @return the aggregated counts of the results
+   * @throws IOException if the file can't be read or if a line is longer than the window size
+   */
+  ValidationSummary validate(final Path file, final ObjLongConsumer<? super RuleResult> failureHandler) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      long windowStart = 0;
+      while (windowStart < size) {
+        final int windowLength = (int) Math.min(this.windowSize, size - windowStart);
+        final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+        int lineStart = 0;
+        boolean ascii = true;
+        for (int i = 0; i < windowLength; i++) {
+          final byte b = window.get(i);
+          if (b == '\n') {
+            validateLine(window, lineStart, i, ascii, windowStart + lineStart, failureHandler);
+            lineStart = i + 1;
+            ascii = true;
+          } else if (b < 0) {
+            ascii = false;
+          }
+        }
+        if (windowStart + windowLength == size) {
+          if (lineStart < windowLength) {
+            validateLine(window, lineStart, windowLength, ascii, windowStart + lineStart, failureHandler);
+          }
+          windowStart = size;
+        } else if (lineStart == 0) {
+          throw new IOException("The line at offset " + windowStart + " is longer than " + this.windowSize + " bytes");
+        } else {
+          // The last line is incomplete: the next window starts with it.
+          windowStart += lineStart;
+        }
+      }
+    }
+    return this.accumulator.toSummary();
+  }
+
+  private void validateLine(final MappedByteBuffer window, final int start, int end, final boolean ascii,
+      final long offset, final ObjLongConsumer<? super RuleResult> failureHandler) {
+    if (end > start && window.get(end - 1) == '\r') {
+      end--;
+    }
+    final int length = end - start;
+    final RuleResult result;
+    if (ascii && length < this.rules.minimumBulkLength()) {
+      result = this.rules.validateAscii(window, start, length, this.failFast);
+    } else {
+      copyLine(window, start, length);
+      if (ascii) {
+        result = this.rules.validateAscii(this.wrappedLineBuffer, 0, length, this.failFast);
+      } else {
+        result = this.rules.validateUtf8(this.lineBuffer, 0, length, this.failFast);
+      }
+    }
+    this.accumulator.add(result);
+    if (!result.isValid()) {
+      failureHandler.accept(result, offset);
+    }
+  }
+
+  /**
+   * Copies <tt>window[start, start + length)</tt> at the beginning of the scratch array.
+   */
+  private void copyLine(final MappedByteBuffer window, final int start, final int length) {
+    if (this.lineBuffer.length < length) {
+      this.lineBuffer = new byte[Math.max(length, this.lineBuffer.length * 2)];
+      this.wrappedLineBuffer = ByteBuffer.wrap(this.lineBuffer);
+    }
+    final ByteBuffer line = window.duplicate();
+    line.position(start);
+    line.get(this.lineBuffer, 0, length);
+  }
+}
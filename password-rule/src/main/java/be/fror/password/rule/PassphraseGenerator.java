@@ -0,0 +1,216 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.math.DoubleMath;
+
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Generates diceware-style passphrases: words picked uniformly from a <tt>Wordlist</tt> and joined
+ * by a separator, such as <tt>"correct horse battery staple"</tt>.
+ *
+ * <p>
+ * When a <tt>Ruler</tt> is given, the passphrases it rejects are generated again, at most
+ * <tt>MAX_ATTEMPTS</tt> times.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@ThreadSafe
+@Immutable
+public final class PassphraseGenerator {
+
+  /**
+   * The number of passphrases generated before giving up when the ruler rejects them all.
+   */
+  public static final int MAX_ATTEMPTS = Ruler.Generator.MAX_ATTEMPTS;
+
+  private final Wordlist wordlist;
+  private final int numberOfWords;
+  private final String separator;
+  @Nullable
+  private final Ruler ruler;
+
+  private PassphraseGenerator(final Builder builder) {
+    this.wordlist = builder.wordlist;
+    this.numberOfWords = builder.numberOfWords;
+    this.separator = builder.separator;
+    this.ruler = builder.ruler;
+  }
+
+  /**
+   * Returns the entropy of the generated passphrases, in bits, that is <tt>numberOfWords</tt>
+   * times the base 2 logarithm of the size of the wordlist.
+   *
+   * <p>
+   * If a ruler rejects some passphrases, the actual entropy is slightly lower.
+   *
+   * @return the entropy of the generated passphrases, in bits
+   */
+  public double getEntropy() {
+    return this.numberOfWords * DoubleMath.log2(this.wordlist.size());
+  }
+
+  /**
+   * Generates a passphrase using <tt>random</tt>.
+   *
+   * @param random the random number generator to use to generate the passphrase
+   * @return a new passphrase
+   * @throws IllegalStateException if the ruler rejected <tt>MAX_ATTEMPTS</tt> passphrases in a row
+   */
+  public String generatePassphrase(final Random random) {
+    checkNotNull(random, "random must not be null");
+    return generate(RandomSource.of(random, BitPoolRandomSource.poolSizeFor(this.numberOfWords)), new StringBuilder());
+  }
+
+  /**
+   * Generates <tt>count</tt> passphrases using <tt>random</tt>.
+   *
+   * <p>
+   * The passphrases are generated lazily, when the stream is consumed, in a single buffer reused
+   * for all of them.
+   *
+   * @param count the number of passphrases to generate
+   * @param random the random number generator to use to generate the passphrases
+   * @return a stream of <tt>count</tt> passphrases
+   * @throws IllegalArgumentException if <tt>count &lt; 0</tt>
+   */
+  public Stream<String> generatePassphrases(final int count, final Random random) {
+    checkArgument(count >= 0, "count (%s) must not be negative", count);
+    checkNotNull(random, "random must not be null");
+    return StreamSupport.stream(new Spliterators.AbstractSpliterator<String>(count, Spliterator.ORDERED | Spliterator.NONNULL) {
+      private final RandomSource source = RandomSource.of(random, BitPoolRandomSource.BATCH_POOL_SIZE);
+      private final StringBuilder buffer = new StringBuilder();
+      private int remaining = count;
+
+      @Override
+      public boolean tryAdvance(Consumer<? super String> action) {
+        if (this.remaining <= 0) {
+          return false;
+        }
+        this.remaining--;
+        action.accept(generate(this.source, this.buffer));
+        return true;
+      }
+    }, false);
+  }
+
+  private String generate(final RandomSource source, final StringBuilder buffer) {
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      buffer.setLength(0);
+      for (int i = 0; i < this.numberOfWords; i++) {
+        if (i > 0) {
+          buffer.append(this.separator);
+        }
+        this.wordlist.appendTo(source.nextInt(this.wordlist.size()), buffer);
+      }
+      final String passphrase = buffer.toString();
+      if (this.ruler == null || this.ruler.isValid(passphrase)) {
+        return passphrase;
+      }
+    }
+    throw new IllegalStateException("No generated passphrase was accepted by the ruler after " + MAX_ATTEMPTS + " attempts");
+  }
+
+  /**
+   * The builder class for <tt>PassphraseGenerator</tt>.
+   *
+   * <p>
+   * Example of usage:
+   *
+   * <pre><code>
+   * PassphraseGenerator generator = new PassphraseGenerator.Builder(Wordlist.read(file))
+   *   .numberOfWords(5)
+   *   .separator("-")
+   *   .build();
+   * </code></pre>
+   */
+  @NotThreadSafe
+  public static class Builder {
+
+    private final Wordlist wordlist;
+    private int numberOfWords = 6;
+    private String separator = " ";
+    @Nullable
+    private Ruler ruler;
+
+    /**
+     * Instantiates a new <tt>PassphraseGenerator</tt> builder.
+     *
+     * @param wordlist the words of the passphrases
+     */
+    public Builder(Wordlist wordlist) {
+      this.wordlist = checkNotNull(wordlist, "wordlist must not be null");
+    }
+
+    /**
+     * Sets the number of words of the passphrases, 6 by default.
+     *
+     * @param numberOfWords the number of words of the passphrases
+     * @return <tt>this</tt>
+     * @throws IllegalArgumentException if <tt>numberOfWords &lt;= 0</tt>
+     */
+    public Builder numberOfWords(int numberOfWords) {
+      checkArgument(numberOfWords > 0, "numberOfWords must be strictly positive");
+      this.numberOfWords = numberOfWords;
+      return this;
+    }
+
+    /**
+     * Sets the separator between the words of the passphrases, a space by default.
+     *
+     * @param separator the separator between the words
+     * @return <tt>this</tt>
+     */
+    public Builder separator(String separator) {
+      this.separator = checkNotNull(separator, "separator must not be null");
+      return this;
+    }
+
+    /**
+     * Sets the ruler which must accept the generated passphrases.
+     *
+     * @param ruler the ruler checking the passphrases
+     * @return <tt>this</tt>
+     */
+    public Builder ruler(Ruler ruler) {
+      this.ruler = checkNotNull(ruler, "ruler must not be null");
+      return this;
+    }
+
+    /**
+     * Creates a new <tt>PassphraseGenerator</tt>.
+     *
+     * @return a new passphrase generator
+     */
+    public PassphraseGenerator build() {
+      return new PassphraseGenerator(this);
+    }
+  }
+}
@@ -16,16 +16,22 @@
 package be.fror.password.rule;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-
-import java.util.Objects;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 
 /**
+ * A password to validate.
+ *
+ * <p>
+ * A <tt>Password</tt> is a view over the characters given at its creation, which are never
+ * copied: a password can be validated from a <tt>char[]</tt>, such as the one returned by
+ * <tt>JPasswordField.getPassword()</tt>, which can be wiped once the validation is over. The
+ * characters must not be modified while the password is being validated.
  *
  * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
  */
 public final class Password {
 
-  private final String password;
+  private final CharSequence characters;
 
   /**
    * 
@@ -33,15 +39,79 @@ public final class Password {
    */
   public Password(final String password) {
     checkNotNull(password);
-    this.password = password;
+    this.characters = password;
+  }
+
+  private Password(final CharSequence characters) {
+    this.characters = characters;
   }
 
   /**
-   * 
-   * @return 
+   * Returns a password viewing the characters of <tt>characters</tt>, without copying them.
+   *
+   * @param characters the characters of the password
+   * @return a view of <tt>characters</tt> as a password
+   */
+  public static Password of(final CharSequence characters) {
+    checkNotNull(characters, "characters must not be null");
+    return new Password(characters);
+  }
+
+  /**
+   * Returns a password viewing the characters of <tt>characters</tt>, without copying them.
+   *
+   * @param characters the characters of the password
+   * @return a view of <tt>characters</tt> as a password
+   */
+  public static Password wrap(final char[] characters) {
+    checkNotNull(characters, "characters must not be null");
+    return new Password(new CharArraySequence(characters, 0, characters.length));
+  }
+
+  /**
+   * Returns a password viewing the characters <tt>characters[offset, offset + length)</tt>,
+   * without copying them.
+   *
+   * @param characters the array containing the characters of the password
+   * @param offset the index of the first character of the password
+   * @param length the number of characters of the password
+   * @return a view of the slice of <tt>characters</tt> as a password
+   * @throws IndexOutOfBoundsException if the slice is not within <tt>characters</tt>
+   */
+  public static Password wrap(final char[] characters, final int offset, final int length) {
+    checkNotNull(characters, "characters must not be null");
+    checkPositionIndexes(offset, offset + length, characters.length);
+    return new Password(new CharArraySequence(characters, offset, length));
+  }
+
+  /**
+   * Returns the password as a <tt>String</tt>.
+   *
+   * <p>
+   * Unless the password was created from a <tt>String</tt>, its characters are copied into a new
+   * <tt>String</tt>, which can't be wiped: rules should use <tt>getCharacters()</tt> instead.
+   *
+   * @return the password as a <tt>String</tt>
    */
   public String getPassword() {
-    return password;
+    return this.characters.toString();
+  }
+
+  /**
+   * Returns a view of the characters of the password, without copying them.
+   *
+   * @return the characters of the password
+   */
+  public CharSequence getCharacters() {
+    return this.characters;
+  }
+
+  /**
+   *
+   * @return the number of characters of the password
+   */
+  public int length() {
+    return this.characters.length();
   }
 
   @Override
@@ -49,12 +119,65 @@ public final class Password {
     if (obj == null || this.getClass() != obj.getClass()) {
       return false;
     }
-    Password other = (Password) obj;
-    return Objects.equals(this.password, other.password);
+    final CharSequence other = ((Password) obj).characters;
+    final int length = this.characters.length();
+    if (length != other.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (this.characters.charAt(i) != other.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(getClass(), this.password);
+    int hash = Password.class.hashCode();
+    for (int i = 0, length = this.characters.length(); i < length; i++) {
+      hash = 31 * hash + this.characters.charAt(i);
+    }
+    return hash;
+  }
+
+  /**
+   * A read-only view of a slice of a <tt>char[]</tt>.
+   */
+  private static final class CharArraySequence implements CharSequence {
+
+    private final char[] chars;
+    private final int offset;
+    private final int length;
+
+    CharArraySequence(final char[] chars, final int offset, final int length) {
+      this.chars = chars;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return this.length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      if (index < 0 || index >= this.length) {
+        throw new IndexOutOfBoundsException("index: " + index + ", length: " + this.length);
+      }
+      return this.chars[this.offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+      checkPositionIndexes(start, end, this.length);
+      return new CharArraySequence(this.chars, this.offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      return new String(this.chars, this.offset, this.length);
+    }
   }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A read-only set of passwords, stored on disk as sorted 64-bit hashes and memory-mapped.
+ *
+ * <p>
+ * Indexes are built offline by <tt>PasswordIndexBuilder</tt>. Once opened, an index uses almost
+ * no heap: the hashes are read from the mapped file, first in a table locating the hashes by their
+ * 16 highest bits, then by binary search in the few thousand hashes sharing those bits.
+ *
+ * <p>
+ * Since only hashes are stored, <tt>contains</tt> may return <tt>true</tt> for a password which
+ * isn't in the index, with a probability of about <tt>size() / 2<sup>64</sup></tt>.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ * @see Rule#notInIndex(PasswordIndex)
+ */
+@ThreadSafe
+@Immutable
+public final class PasswordIndex {
+
+  static final int MAGIC = 0x50574958; // "PWIX"
+  static final int VERSION = 1;
+  static final int BUCKET_BITS = 16;
+  static final int BUCKETS = 1 << BUCKET_BITS;
+  /**
+   * The magic number, the version and the number of hashes, followed by the index of the first
+   * hash of each bucket and the total number of hashes.
+   */
+  static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + (BUCKETS + 1) * Long.BYTES;
+
+  private static final int SEGMENT_BITS = 27;
+  private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  /**
+   * Opens the index stored in <tt>file</tt>.
+   *
+   * @param file the file created by <tt>PasswordIndexBuilder</tt>
+   * @return the index stored in <tt>file</tt>
+   * @throws IOException if the file can't be read or is not a valid index
+   */
+  public static PasswordIndex open(final Path file) throws IOException {
+    checkNotNull(file, "file must not be null");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final long fileSize = channel.size();
+      if (fileSize < HEADER_SIZE) {
+        throw new IOException("Not a password index: " + file);
+      }
+      final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (header.getInt(0) != MAGIC) {
+        throw new IOException("Not a password index: " + file);
+      }
+      if (header.getInt(Integer.BYTES) != VERSION) {
+        throw new IOException("Unsupported password index version: " + header.getInt(Integer.BYTES));
+      }
+      final long size = header.getLong(Integer.BYTES * 2);
+      if (fileSize != HEADER_SIZE + size * Long.BYTES) {
+        throw new IOException("Truncated password index: " + file);
+      }
+      final int segmentCount = (int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+      final ByteBuffer[] segments = new ByteBuffer[segmentCount];
+      for (int i = 0; i < segmentCount; i++) {
+        final long first = (long) i << SEGMENT_BITS;
+        final long length = Math.min(SEGMENT_MASK + 1, size - first) * Long.BYTES;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * Long.BYTES, length);
+      }
+      return new PasswordIndex(header, segments, size);
+    }
+  }
+
+  /**
+   * Returns the hash of a password as stored in the indexes, that is the hash of its UTF-8 bytes.
+   *
+   * <p>
+   * The bytes are fed to the hasher one by one rather than through <tt>hashString</tt>, which would
+   * copy the password in a <tt>String</tt> and a <tt>byte[]</tt> that can't be wiped. As with
+   * <tt>String.getBytes</tt>, unpaired surrogates are encoded as <tt>'?'</tt>.
+   */
+  static long hash(final CharSequence password) {
+    final Hasher hasher = HASH_FUNCTION.newHasher();
+    for (int i = 0, l = password.length(); i < l; i++) {
+      final char c = password.charAt(i);
+      if (c < 0x80) {
+        hasher.putByte((byte) c);
+      } else if (c < 0x800) {
+        hasher.putByte((byte) (0xC0 | c >>> 6));
+        hasher.putByte((byte) (0x80 | c & 0x3F));
+      } else if (!Character.isSurrogate(c)) {
+        hasher.putByte((byte) (0xE0 | c >>> 12));
+        hasher.putByte((byte) (0x80 | c >>> 6 & 0x3F));
+        hasher.putByte((byte) (0x80 | c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < l && Character.isLowSurrogate(password.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, password.charAt(++i));
+        hasher.putByte((byte) (0xF0 | codePoint >>> 18));
+        hasher.putByte((byte) (0x80 | codePoint >>> 12 & 0x3F));
+        hasher.putByte((byte) (0x80 | codePoint >>> 6 & 0x3F));
+        hasher.putByte((byte) (0x80 | codePoint & 0x3F));
+      } else {
+        hasher.putByte((byte) '?');
+      }
+    }
+    return hasher.hash().asLong();
+  }
+
+  /**
+   * Returns the bucket of a hash. Buckets are ordered like the signed hashes they contain.
+   */
+  static int bucket(final long hash) {
+    return (int) (hash >>> (Long.SIZE - BUCKET_BITS)) ^ (BUCKETS >>> 1);
+  }
+
+  private final ByteBuffer header;
+  private final ByteBuffer[] segments;
+  private final long size;
+
+  private PasswordIndex(final ByteBuffer header, final ByteBuffer[] segments, final long size) {
+    this.header = header;
+    this.segments = segments;
+    this.size = size;
+  }
+
+  /**
+   *
+   * @return the number of distinct hashes in this index
+   */
+  public long size() {
+    return this.size;
+  }
+
+  /**
+   * Returns whether <tt>password</tt> is in this index.
+   *
+   * @param password the password to look up
+   * @return <tt>true</tt> if <tt>password</tt> is in this index, <tt>false</tt> otherwise
+   */
+  public boolean contains(final CharSequence password) {
+    checkNotNull(password, "password must not be null");
+    final long hash = hash(password);
+    final int bucket = bucket(hash);
+    long low = bucketStart(bucket);
+    long high = bucketStart(bucket + 1) - 1;
+    while (low <= high) {
+      final long middle = (low + high) >>> 1;
+      final long value = hashAt(middle);
+      if (value < hash) {
+        low = middle + 1;
+      } else if (value > hash) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private long bucketStart(final int bucket) {
+    return this.header.getLong(Integer.BYTES * 2 + Long.BYTES * (1 + bucket));
+  }
+
+  private long hashAt(final long index) {
+    return this.segments[(int) (index >>> SEGMENT_BITS)].getLong((int) (index & SEGMENT_MASK) * Long.BYTES);
+  }
+}
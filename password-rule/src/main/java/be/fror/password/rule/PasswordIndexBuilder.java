@@ -0,0 +1,256 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.io.Closer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Builds <tt>PasswordIndex</tt> files from lists of passwords.
+ *
+ * <p>
+ * The list is a UTF-8 text file containing one password per line; empty lines are ignored. The
+ * passwords are hashed and sorted by runs which are then merged, so lists much bigger than the
+ * available memory can be indexed.
+ *
+ * <p>
+ * This class can be run from the command line:
+ *
+ * <pre><code>
+ * java be.fror.password.rule.PasswordIndexBuilder passwords.txt passwords.idx
+ * </code></pre>
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public final class PasswordIndexBuilder {
+
+  /**
+   * The default number of hashes sorted in memory at once: 128 MiB.
+   */
+  static final int DEFAULT_RUN_SIZE = 1 << 24;
+
+  private PasswordIndexBuilder() {
+  }
+
+  /**
+   * Builds the index of the password list given as first argument into the file given as second
+   * argument.
+   *
+   * @param args the password list and the index file
+   * @throws IOException if the list can't be read or the index can't be written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: PasswordIndexBuilder <password list> <index file>");
+      System.exit(1);
+    }
+    final long size = build(Paths.get(args[0]), Paths.get(args[1]));
+    System.out.println(size + " distinct passwords indexed");
+  }
+
+  /**
+   * Builds the index of the passwords contained in <tt>passwords</tt> into <tt>index</tt>.
+   *
+   * @param passwords the UTF-8 text file containing one password per line
+   * @param index the index file to create or replace
+   * @return the number of distinct passwords indexed
+   * @throws IOException if <tt>passwords</tt> can't be read or <tt>index</tt> can't be written
+   */
+  public static long build(final Path passwords, final Path index) throws IOException {
+    return build(passwords, index, DEFAULT_RUN_SIZE);
+  }
+
+  static long build(final Path passwords, final Path index, final int runSize) throws IOException {
+    checkNotNull(passwords, "passwords must not be null");
+    checkNotNull(index, "index must not be null");
+    checkArgument(runSize > 0, "runSize must be positive");
+    final Path directory = index.toAbsolutePath().getParent();
+    final List<Path> runs = new ArrayList<>();
+    try {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(passwords), StandardCharsets.UTF_8))) {
+        long[] hashes = new long[Math.min(runSize, 1 << 16)];
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.isEmpty()) {
+            continue;
+          }
+          if (count == hashes.length) {
+            hashes = Arrays.copyOf(hashes, (int) Math.min(runSize, hashes.length * 2L));
+          }
+          hashes[count++] = PasswordIndex.hash(line);
+          if (count == runSize) {
+            runs.add(writeRun(directory, hashes, count));
+            count = 0;
+          }
+        }
+        if (count > 0 || runs.isEmpty()) {
+          runs.add(writeRun(directory, hashes, count));
+        }
+      }
+      return merge(runs, index);
+    } finally {
+      for (Path run : runs) {
+        Files.deleteIfExists(run);
+      }
+    }
+  }
+
+  private static Path writeRun(final Path directory, final long[] hashes, final int count) throws IOException {
+    Arrays.sort(hashes, 0, count);
+    final Path run = Files.createTempFile(directory, "password-index", ".run");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+      out.writeLong(count);
+      for (int i = 0; i < count; i++) {
+        out.writeLong(hashes[i]);
+      }
+    }
+    return run;
+  }
+
+  private static long merge(final List<Path> runs, final Path index) throws IOException {
+    final long[] bucketStarts = new long[PasswordIndex.BUCKETS + 1];
+    final PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()), Comparator.comparingLong(RunReader::current));
+    try (FileChannel channel = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      // Every reader is registered as soon as it is opened, so that it is closed even if it fails
+      // while out of the queue. Closing a reader twice has no effect.
+      final Closer closer = Closer.create();
+      try {
+        for (Path run : runs) {
+          final RunReader reader = closer.register(new RunReader(run));
+          if (reader.advance()) {
+            queue.add(reader);
+          } else {
+            reader.close();
+          }
+        }
+        channel.position(PasswordIndex.HEADER_SIZE);
+        long size = 0;
+        int nextBucket = 0;
+        final OutputStream channelOut = Channels.newOutputStream(channel);
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(channelOut, 1 << 16));
+        boolean first = true;
+        long previous = 0;
+        while (!queue.isEmpty()) {
+          final RunReader reader = queue.poll();
+          final long hash = reader.current();
+          if (first || hash != previous) {
+            final int bucket = PasswordIndex.bucket(hash);
+            while (nextBucket <= bucket) {
+              bucketStarts[nextBucket++] = size;
+            }
+            out.writeLong(hash);
+            size++;
+            previous = hash;
+            first = false;
+          }
+          if (reader.advance()) {
+            queue.add(reader);
+          } else {
+            reader.close();
+          }
+        }
+        while (nextBucket <= PasswordIndex.BUCKETS) {
+          bucketStarts[nextBucket++] = size;
+        }
+        out.flush();
+
+        final ByteBuffer header = ByteBuffer.allocate(PasswordIndex.HEADER_SIZE);
+        header.putInt(PasswordIndex.MAGIC);
+        header.putInt(PasswordIndex.VERSION);
+        header.putLong(size);
+        for (long bucketStart : bucketStarts) {
+          header.putLong(bucketStart);
+        }
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+          position += channel.write(header, position);
+        }
+        return size;
+      } catch (Throwable t) {
+        throw closer.rethrow(t);
+      } finally {
+        closer.close();
+      }
+    }
+  }
+
+  private static final class RunReader implements Closeable {
+
+    private final DataInputStream in;
+    private long remaining;
+    private long current;
+
+    RunReader(final Path run) throws IOException {
+      final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+      try {
+        this.remaining = input.readLong();
+      } catch (IOException | RuntimeException e) {
+        try {
+          input.close();
+        } catch (IOException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+        throw e;
+      }
+      this.in = input;
+    }
+
+    long current() {
+      return this.current;
+    }
+
+    boolean advance() throws IOException {
+      if (this.remaining == 0) {
+        return false;
+      }
+      this.remaining--;
+      this.current = this.in.readLong();
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.in.close();
+    }
+  }
+}
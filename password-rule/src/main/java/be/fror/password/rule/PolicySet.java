@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A set of <tt>Ruler</tt>s, or policies, identified by keys, validating a password against all of
+ * them at once.
+ *
+ * <p>
+ * The character rules of all the policies are merged: the characters of a password are read only
+ * once, whatever the number of policies, then the thresholds of each policy are checked against
+ * the shared counts. Only the custom rules are evaluated once per policy.
+ *
+ * <p>
+ * For instance, to find which tenants would accept a password:
+ *
+ * <pre>{@code
+ * PolicySet<String> policies = PolicySet.of(ImmutableMap.of("acme", acmeRuler, "globex", globexRuler));
+ * ImmutableSet<String> tenants = policies.getAcceptingPolicies(password);
+ * }</pre>
+ *
+ * @param <K> the type of the keys identifying the policies
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@Immutable
+public final class PolicySet<K> {
+
+  /**
+   * Creates a set of the policies of <tt>policies</tt>, keeping the iteration order of its keys.
+   *
+   * <p>
+   * Each policy keeps its fail-fast mode and its metrics, if any. Its adaptive ordering and the
+   * cache of its results aren't used.
+   *
+   * @param <K> the type of the keys identifying the policies
+   * @param policies the rulers, by key
+   * @return a set of the policies of <tt>policies</tt>
+   */
+  public static <K> PolicySet<K> of(final Map<K, Ruler> policies) {
+    checkNotNull(policies, "policies must not be null");
+    final ImmutableMap<K, Ruler> copy = ImmutableMap.copyOf(policies);
+    final List<List<Rule>> ruleSets = new ArrayList<>(copy.size());
+    final boolean[] failFast = new boolean[copy.size()];
+    int i = 0;
+    for (Ruler ruler : copy.values()) {
+      ruleSets.add(ruler.getCompiledRules().getRules());
+      failFast[i++] = ruler.isFailFast();
+    }
+    return new PolicySet<>(copy.keySet().asList(), CompiledRules.compileSharingCounts(ruleSets), failFast);
+  }
+
+  private final ImmutableList<K> keys;
+  private final CompiledRules[] policies;
+  private final boolean[] failFast;
+
+  private PolicySet(final ImmutableList<K> keys, final List<CompiledRules> policies, final boolean[] failFast) {
+    this.keys = keys;
+    this.policies = policies.toArray(new CompiledRules[policies.size()]);
+    this.failFast = failFast;
+  }
+
+  /**
+   *
+   * @return the keys of the policies of this set, in their original order
+   */
+  public ImmutableSet<K> keySet() {
+    return ImmutableSet.copyOf(this.keys);
+  }
+
+  /**
+   * Validates <tt>password</tt> against each policy.
+   *
+   * <p>
+   * The result of each policy is the same as the result of <tt>validatePassword(String)</tt> on
+   * its <tt>Ruler</tt>.
+   *
+   * @param password the password to validate
+   * @return the result of each policy, in the order of the policies
+   */
+  public ImmutableMap<K, RuleResult> validatePassword(final CharSequence password) {
+    checkNotNull(password, "password must not be null");
+    final ImmutableMap.Builder<K, RuleResult> results = ImmutableMap.builder();
+    if (this.policies.length == 0) {
+      return results.build();
+    }
+    final int length = password.length();
+    final int[] counts = count(password);
+    for (int i = 0; i < this.policies.length; i++) {
+      final RuleResult result = this.failFast[i]
+          ? this.policies[i].validateFailFast(length, counts, () -> password)
+          : this.policies[i].validate(length, counts, password);
+      results.put(this.keys.get(i), result);
+    }
+    return results.build();
+  }
+
+  /**
+   * Returns the keys of the policies accepting <tt>password</tt>.
+   *
+   * <p>
+   * Each policy stops at its first failing rule, like <tt>Ruler.isValid(CharSequence)</tt>.
+   *
+   * @param password the password to validate
+   * @return the keys of the policies accepting <tt>password</tt>, in the order of the policies
+   */
+  public ImmutableSet<K> getAcceptingPolicies(final CharSequence password) {
+    checkNotNull(password, "password must not be null");
+    final ImmutableSet.Builder<K> accepting = ImmutableSet.builder();
+    if (this.policies.length == 0) {
+      return accepting.build();
+    }
+    final int length = password.length();
+    final int[] counts = count(password);
+    for (int i = 0; i < this.policies.length; i++) {
+      if (this.policies[i].isValid(length, counts, password)) {
+        accepting.add(this.keys.get(i));
+      }
+    }
+    return accepting.build();
+  }
+
+  /**
+   * Counts the characters of <tt>password</tt> once for all the policies.
+   *
+   * <p>
+   * The counts are copied out of the scratch array, which the custom rules of the policies could
+   * reuse.
+   */
+  private int[] count(final CharSequence password) {
+    return this.policies[0].count(password).clone();
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Generates pronounceable passwords of lowercase ASCII letters, such as <tt>"trandelisponce"</tt>.
+ *
+ * <p>
+ * The letters are drawn from a Markov chain of order 2 trained on the ASCII letters of the words
+ * of a <tt>Wordlist</tt>: each letter is drawn according to how often it follows the two
+ * previous letters in the words. When the chain reaches the end of a word, a new word starts.
+ *
+ * <p>
+ * When a <tt>Ruler</tt> is given, the passwords it rejects are generated again, at most
+ * <tt>MAX_ATTEMPTS</tt> times.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@ThreadSafe
+@Immutable
+public final class PronounceableGenerator {
+
+  /**
+   * The number of passwords generated before giving up when the ruler rejects them all.
+   */
+  public static final int MAX_ATTEMPTS = Ruler.Generator.MAX_ATTEMPTS;
+
+  /**
+   * The symbols of the chain: <tt>0</tt> for the boundaries of words, then the 26 letters.
+   */
+  private static final int SYMBOLS = 27;
+  private static final int STATES = SYMBOLS * SYMBOLS;
+  private static final int START = 0;
+
+  /**
+   * For each state <tt>previous * SYMBOLS + last</tt>, the cumulative counts of the next symbols.
+   * States never seen in the words back off to the state made of their last letter only, then to
+   * the start state.
+   */
+  private final int[] cumulativeCounts;
+  @Nullable
+  private final Ruler ruler;
+
+  private PronounceableGenerator(final Builder builder) {
+    this.ruler = builder.ruler;
+    final int[] counts = new int[STATES * SYMBOLS];
+    final Wordlist wordlist = builder.wordlist;
+    for (int w = 0; w < wordlist.size(); w++) {
+      final String word = wordlist.get(w);
+      int state = START;
+      for (int i = 0; i <= word.length(); i++) {
+        final int symbol = i < word.length() ? symbol(word.charAt(i)) : 0;
+        if (symbol == 0 && state == START) {
+          continue;
+        }
+        counts[state * SYMBOLS + symbol]++;
+        state = symbol == 0 ? START : next(state, symbol);
+      }
+    }
+    this.cumulativeCounts = new int[STATES * SYMBOLS];
+    checkArgument(sum(counts, START) > 0, "The words contain no ASCII letter");
+    for (int state = 0; state < STATES; state++) {
+      int source = state;
+      if (sum(counts, source) == 0) {
+        source = state % SYMBOLS;
+      }
+      if (sum(counts, source) == 0) {
+        source = START;
+      }
+      int total = 0;
+      for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+        total += counts[source * SYMBOLS + symbol];
+        this.cumulativeCounts[state * SYMBOLS + symbol] = total;
+      }
+    }
+  }
+
+  private static int symbol(final char c) {
+    final char lowercase = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    return lowercase >= 'a' && lowercase <= 'z' ? lowercase - 'a' + 1 : 0;
+  }
+
+  private static int next(final int state, final int symbol) {
+    return state % SYMBOLS * SYMBOLS + symbol;
+  }
+
+  private static int sum(final int[] counts, final int state) {
+    int sum = 0;
+    for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+      sum += counts[state * SYMBOLS + symbol];
+    }
+    return sum;
+  }
+
+  private int total(final int state) {
+    return this.cumulativeCounts[state * SYMBOLS + SYMBOLS - 1];
+  }
+
+  private double probability(final int state, final int symbol) {
+    final int offset = state * SYMBOLS + symbol;
+    final int count = symbol == 0 ? this.cumulativeCounts[offset] : this.cumulativeCounts[offset] - this.cumulativeCounts[offset - 1];
+    return (double) count / total(state);
+  }
+
+  /**
+   * Returns a lower bound of the entropy of the generated passwords of length <tt>length</tt>, in
+   * bits.
+   *
+   * <p>
+   * The entropy is the sum, for each letter, of the entropy of its distribution given the state
+   * of the chain. If a ruler rejects some passwords, the actual entropy is slightly lower.
+   *
+   * @param length the length of the passwords
+   * @return a lower bound of the entropy of the generated passwords, in bits
+   * @throws IllegalArgumentException if <tt>length &lt;= 0</tt>
+   */
+  public double getEntropy(final int length) {
+    checkArgument(length > 0, "length (%s) must be strictly positive", length);
+    double entropy = 0;
+    double[] distribution = new double[STATES];
+    distribution[START] = 1;
+    final double[] letters = new double[SYMBOLS];
+    for (int i = 0; i < length; i++) {
+      final double[] nextDistribution = new double[STATES];
+      for (int state = 0; state < STATES; state++) {
+        final double p = distribution[state];
+        if (p == 0) {
+          continue;
+        }
+        // Reaching the end of a word means drawing the letter from the start state, which never
+        // ends a word.
+        final double end = probability(state, 0);
+        for (int symbol = 1; symbol < SYMBOLS; symbol++) {
+          final double direct = probability(state, symbol);
+          final double restart = end * probability(START, symbol);
+          letters[symbol] = direct + restart;
+          nextDistribution[next(state, symbol)] += p * direct;
+          nextDistribution[next(START, symbol)] += p * restart;
+        }
+        for (int symbol = 1; symbol < SYMBOLS; symbol++) {
+          if (letters[symbol] > 0) {
+            entropy -= p * letters[symbol] * Math.log(letters[symbol]);
+          }
+        }
+      }
+      distribution = nextDistribution;
+    }
+    return entropy / Math.log(2);
+  }
+
+  /**
+   * Generates a pronounceable password of length <tt>length</tt> using <tt>random</tt>.
+   *
+   * @param length the length of the password to generate
+   * @param random the random number generator to use to generate the password
+   * @return a new pronounceable password
+   * @throws IllegalArgumentException if <tt>length &lt;= 0</tt>
+   * @throws IllegalStateException if the ruler rejected <tt>MAX_ATTEMPTS</tt> passwords in a row
+   */
+  public String generatePassword(final int length, final Random random) {
+    checkArgument(length > 0, "length (%s) must be strictly positive", length);
+    checkNotNull(random, "random must not be null");
+    return generate(new char[length], RandomSource.of(random, BitPoolRandomSource.poolSizeFor(length)));
+  }
+
+  /**
+   * Generates <tt>count</tt> pronounceable passwords of length <tt>length</tt> using
+   * <tt>random</tt>.
+   *
+   * <p>
+   * The passwords are generated lazily, when the stream is consumed, in a single buffer reused
+   * for all of them.
+   *
+   * @param count the number of passwords to generate
+   * @param length the length of the passwords to generate
+   * @param random the random number generator to use to generate the passwords
+   * @return a stream of <tt>count</tt> pronounceable passwords
+   * @throws IllegalArgumentException if <tt>count &lt; 0</tt> or <tt>length &lt;= 0</tt>
+   */
+  public Stream<String> generatePasswords(final int count, final int length, final Random random) {
+    checkArgument(count >= 0, "count (%s) must not be negative", count);
+    checkArgument(length > 0, "length (%s) must be strictly positive", length);
+    checkNotNull(random, "random must not be null");
+    final char[] password = new char[length];
+    return StreamSupport.stream(new Spliterators.AbstractSpliterator<String>(count, Spliterator.ORDERED | Spliterator.NONNULL) {
+      private final RandomSource source = RandomSource.of(random, BitPoolRandomSource.BATCH_POOL_SIZE);
+      private int remaining = count;
+
+      @Override
+      public boolean tryAdvance(Consumer<? super String> action) {
+        if (this.remaining <= 0) {
+          return false;
+        }
+        this.remaining--;
+        action.accept(generate(password, this.source));
+        return true;
+      }
+    }, false);
+  }
+
+  private String generate(final char[] password, final RandomSource source) {
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      int state = START;
+      for (int i = 0; i < password.length;) {
+        final int symbol = draw(state, source);
+        if (symbol == 0) {
+          state = START;
+        } else {
+          password[i++] = (char) ('a' + symbol - 1);
+          state = next(state, symbol);
+        }
+      }
+      final String generated = new String(password);
+      if (this.ruler == null || this.ruler.isValid(generated)) {
+        return generated;
+      }
+    }
+    throw new IllegalStateException("No generated password was accepted by the ruler after " + MAX_ATTEMPTS + " attempts");
+  }
+
+  private int draw(final int state, final RandomSource source) {
+    final int offset = state * SYMBOLS;
+    final int value = source.nextInt(this.cumulativeCounts[offset + SYMBOLS - 1]);
+    int symbol = 0;
+    while (this.cumulativeCounts[offset + symbol] <= value) {
+      symbol++;
+    }
+    return symbol;
+  }
+
+  /**
+   * The builder class for <tt>PronounceableGenerator</tt>.
+   *
+   * <p>
+   * Example of usage:
+   *
+   * <pre><code>
+   * PronounceableGenerator generator = new PronounceableGenerator.Builder(Wordlist.read(file))
+   *   .ruler(ruler)
+   *   .build();
+   * </code></pre>
+   */
+  @NotThreadSafe
+  public static class Builder {
+
+    private final Wordlist wordlist;
+    @Nullable
+    private Ruler ruler;
+
+    /**
+     * Instantiates a new <tt>PronounceableGenerator</tt> builder.
+     *
+     * @param wordlist the words on which the generator is trained
+     */
+    public Builder(Wordlist wordlist) {
+      this.wordlist = checkNotNull(wordlist, "wordlist must not be null");
+    }
+
+    /**
+     * Sets the ruler which must accept the generated passwords.
+     *
+     * @param ruler the ruler checking the passwords
+     * @return <tt>this</tt>
+     */
+    public Builder ruler(Ruler ruler) {
+      this.ruler = checkNotNull(ruler, "ruler must not be null");
+      return this;
+    }
+
+    /**
+     * Creates a new <tt>PronounceableGenerator</tt> trained on the words of the wordlist.
+     *
+     * @return a new pronounceable password generator
+     * @throws IllegalArgumentException if the words contain no ASCII letter
+     */
+    public PronounceableGenerator build() {
+      return new PronounceableGenerator(this);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * A source of random integers used to generate passwords.
+ *
+ * <p>
+ * This abstracts the generator of <tt>Ruler</tt> over <tt>Random</tt> and
+ * <tt>SplittableRandom</tt>, which don't share any common type. The bits of <tt>SecureRandom</tt>s are
+ * drawn in bulk by a <tt>BitPoolRandomSource</tt>.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@FunctionalInterface
+interface RandomSource {
+
+  /**
+   * Returns a uniformly distributed integer between <tt>0</tt> (inclusive) and <tt>bound</tt>
+   * (exclusive).
+   *
+   * @param bound the upper bound, exclusive; must be positive.
+   * @return a random integer in <tt>[0, bound)</tt>
+   */
+  public int nextInt(int bound);
+
+  /**
+   * Returns a source of the random integers of <tt>random</tt>.
+   *
+   * <p>
+   * The bits of <tt>SecureRandom</tt>s, expensive to draw one integer at a time, are drawn in bulk
+   * by pools of <tt>poolSize</tt> bytes. The returned source must not be shared between threads.
+   */
+  static RandomSource of(final Random random, final int poolSize) {
+    if (random instanceof SecureRandom) {
+      return new BitPoolRandomSource(random, poolSize);
+    }
+    return random::nextInt;
+  }
+
+  static RandomSource of(final SplittableRandom random) {
+    return random::nextInt;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded cache of the results of a <tt>Ruler</tt>.
+ *
+ * <p>
+ * The passwords are never stored: the results are keyed by two SipHash-2-4 hashes of the
+ * password, whose keys are drawn randomly for each cache, so the keys can't be reversed or
+ * precomputed. The results are frozen before being stored so that they can be shared safely.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@ThreadSafe
+final class ResultCache {
+
+  private final HashFunction firstHash;
+  private final HashFunction secondHash;
+  private final Cache<Key, RuleResult> results;
+
+  ResultCache(final long maximumSize, final long expireAfterWrite, final TimeUnit unit) {
+    final SecureRandom random = new SecureRandom();
+    this.firstHash = Hashing.sipHash24(random.nextLong(), random.nextLong());
+    this.secondHash = Hashing.sipHash24(random.nextLong(), random.nextLong());
+    this.results = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite, unit)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns the cached result of <tt>password</tt>, computing it with <tt>validator</tt> if
+   * missing.
+   */
+  RuleResult get(final CharSequence password, final Function<? super CharSequence, RuleResult> validator) {
+    final Key key = new Key(
+        this.firstHash.hashUnencodedChars(password).asLong(),
+        this.secondHash.hashUnencodedChars(password).asLong());
+    RuleResult result = this.results.getIfPresent(key);
+    if (result == null) {
+      result = validator.apply(password).freeze();
+      this.results.put(key, result);
+    }
+    return result;
+  }
+
+  CacheStats stats() {
+    return this.results.stats();
+  }
+
+  void invalidateAll() {
+    this.results.invalidateAll();
+  }
+
+  /**
+   * The 128 bits identifying a password.
+   */
+  @Immutable
+  private static final class Key {
+
+    private final long first;
+    private final long second;
+
+    Key(final long first, final long second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return this.first == other.first && this.second == other.second;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) this.first;
+    }
+  }
+}
@@ -27,7 +27,12 @@ import static be.fror.password.rule.RuleConstants.ASCII_SYMBOL_CHARACTERS;
 import static be.fror.password.rule.RuleConstants.ASCII_SYMBOL_MATCHER;
 import static be.fror.password.rule.RuleConstants.ASCII_UPPERCASE_LETTER_CHARACTERS;
 import static be.fror.password.rule.RuleConstants.ASCII_UPPERCASE_LETTER_MATCHER;
+import static be.fror.password.rule.RuleConstants.unicodeDigitMatcher;
+import static be.fror.password.rule.RuleConstants.unicodeLetterMatcher;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
 
 /**
  * 
@@ -122,6 +127,25 @@ public interface Rule {
     return StandardRules.NO_WHITESPACE;
   }
 
+  /**
+   * Returns a rule rejecting the passwords contained in <tt>index</tt>, typically a list of
+   * breached or common passwords.
+   *
+   * <p>
+   * If not validated, this <tt>Rule</tt> can generate the following error code:
+   *
+   * <ul>
+   * <li><tt>"knownPassword"</tt> without any parameters.</li>
+   * </ul>
+   *
+   * @param index the index of the passwords to reject
+   * @return a <tt>Rule</tt> for passwords not contained in <tt>index</tt>.
+   */
+  public static Rule notInIndex(final PasswordIndex index) {
+    checkNotNull(index, "index must not be null");
+    return new IndexRule(index);
+  }
+
   /**
    * 
    * @param numberOfCharacters
@@ -205,4 +229,90 @@ public interface Rule {
         numberOfCharacters,
         "characters.asciiSymbols");
   }
+
+  /**
+   * Returns a rule requiring at least <tt>numberOfCharacters</tt> Unicode letters, as defined by
+   * <tt>Character.isLetter(int)</tt>.
+   *
+   * <p>
+   * Characters are counted as code points: a letter outside of the Basic Multilingual Plane counts
+   * for one character. This rule is not a <tt>CharacterRule</tt> and is ignored when generating
+   * passwords.
+   *
+   * <p>
+   * If not validated, this <tt>Rule</tt> can generate the following error code:
+   *
+   * <ul>
+   * <li><tt>"characters.unicodeLetters"</tt> with the parameter <tt>"numberOfCharacters"</tt>.</li>
+   * </ul>
+   *
+   * @param numberOfCharacters the minimum number of letters
+   * @return a <tt>Rule</tt> for passwords containing Unicode letters
+   * @throws IllegalArgumentException if <tt>numberOfCharacters &lt;= 0</tt>
+   */
+  public static Rule unicodeLetters(int numberOfCharacters) {
+    checkArgument(numberOfCharacters > 0, "numberOfCharacters must be greater than 0");
+    return new UnicodeCharacterRule(
+        unicodeLetterMatcher(),
+        numberOfCharacters,
+        "characters.unicodeLetters",
+        ImmutableMap.of("numberOfCharacters", numberOfCharacters));
+  }
+
+  /**
+   * Returns a rule requiring at least <tt>numberOfCharacters</tt> Unicode digits, as defined by
+   * <tt>Character.isDigit(int)</tt>.
+   *
+   * <p>
+   * This rule is not a <tt>CharacterRule</tt> and is ignored when generating passwords.
+   *
+   * <p>
+   * If not validated, this <tt>Rule</tt> can generate the following error code:
+   *
+   * <ul>
+   * <li><tt>"characters.unicodeDigits"</tt> with the parameter <tt>"numberOfCharacters"</tt>.</li>
+   * </ul>
+   *
+   * @param numberOfCharacters the minimum number of digits
+   * @return a <tt>Rule</tt> for passwords containing Unicode digits
+   * @throws IllegalArgumentException if <tt>numberOfCharacters &lt;= 0</tt>
+   */
+  public static Rule unicodeDigits(int numberOfCharacters) {
+    checkArgument(numberOfCharacters > 0, "numberOfCharacters must be greater than 0");
+    return new UnicodeCharacterRule(
+        unicodeDigitMatcher(),
+        numberOfCharacters,
+        "characters.unicodeDigits",
+        ImmutableMap.of("numberOfCharacters", numberOfCharacters));
+  }
+
+  /**
+   * Returns a rule requiring at least <tt>numberOfCharacters</tt> code points of the Unicode script
+   * <tt>script</tt>.
+   *
+   * <p>
+   * This rule is not a <tt>CharacterRule</tt> and is ignored when generating passwords.
+   *
+   * <p>
+   * If not validated, this <tt>Rule</tt> can generate the following error code:
+   *
+   * <ul>
+   * <li><tt>"characters.unicodeScript"</tt> with the parameters <tt>"script"</tt> and
+   * <tt>"numberOfCharacters"</tt>.</li>
+   * </ul>
+   *
+   * @param script the script of the characters to count
+   * @param numberOfCharacters the minimum number of characters of <tt>script</tt>
+   * @return a <tt>Rule</tt> for passwords containing characters of <tt>script</tt>
+   * @throws IllegalArgumentException if <tt>numberOfCharacters &lt;= 0</tt>
+   */
+  public static Rule unicodeScript(Character.UnicodeScript script, int numberOfCharacters) {
+    checkNotNull(script, "script must not be null");
+    checkArgument(numberOfCharacters > 0, "numberOfCharacters must be greater than 0");
+    return new UnicodeCharacterRule(
+        UnicodeCharMatcher.ofScript(script),
+        numberOfCharacters,
+        "characters.unicodeScript",
+        ImmutableMap.of("script", script.name(), "numberOfCharacters", numberOfCharacters));
+  }
 }
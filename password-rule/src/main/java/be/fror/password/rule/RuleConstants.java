@@ -40,4 +40,30 @@ class RuleConstants {
 
   static final String ASCII_SYMBOL_CHARACTERS = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
   static final AsciiCharMatcher ASCII_SYMBOL_MATCHER = anyOfAscii(ASCII_SYMBOL_CHARACTERS);
+
+  /**
+   * Returns the matcher of the Unicode letters, built on first use.
+   */
+  static UnicodeCharMatcher unicodeLetterMatcher() {
+    return UnicodeLetterMatcherHolder.MATCHER;
+  }
+
+  /**
+   * Returns the matcher of the Unicode digits, built on first use.
+   */
+  static UnicodeCharMatcher unicodeDigitMatcher() {
+    return UnicodeDigitMatcherHolder.MATCHER;
+  }
+
+  // Building the table of a UnicodeCharMatcher tests every character of the BMP: the holders keep
+  // this cost away from the policies which only use ASCII rules.
+  private static final class UnicodeLetterMatcherHolder {
+
+    static final UnicodeCharMatcher MATCHER = UnicodeCharMatcher.of(Character::isLetter, "UnicodeCharMatcher.letters()");
+  }
+
+  private static final class UnicodeDigitMatcherHolder {
+
+    static final UnicodeCharMatcher MATCHER = UnicodeCharMatcher.of(Character::isDigit, "UnicodeCharMatcher.digits()");
+  }
 }
@@ -0,0 +1,453 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.JMException;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+
+/**
+ * Per-rule call counts, failure counts and latencies of a <tt>Ruler</tt>.
+ *
+ * <p>
+ * The metrics are recorded by every validation of the <tt>Ruler</tt> built with
+ * <tt>Ruler.Builder.recordMetrics(true)</tt>, using striped counters so that concurrent
+ * validations don't contend. The failures are counted by every validation, but their error codes
+ * are only known, and counted, when the <tt>RuleResult</tt> is built: <tt>Ruler.isValid</tt> and
+ * <tt>Ruler.getFailureMask</tt> don't count them.
+ *
+ * <p>
+ * The built-in rules share a single reading of the password: their latency only measures their
+ * own check of the counted characters, not that reading.
+ *
+ * <p>
+ * The metrics can be read with <tt>snapshot()</tt> or through JMX, once registered with
+ * <tt>registerMBean(ObjectName)</tt>.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ * @see Ruler#getMetrics()
+ */
+@ThreadSafe
+public final class RuleMetrics implements RuleMetricsMXBean {
+
+  /**
+   * The number of buckets of the latency histograms: the bucket <tt>0</tt> counts the calls taking
+   * no measurable time and the bucket <tt>i</tt> the calls taking from <tt>2^(i-1)</tt> to
+   * <tt>2^i - 1</tt> nanoseconds.
+   */
+  public static final int LATENCY_BUCKETS = 64;
+
+  private final Counters[] counters;
+
+  RuleMetrics(final List<Rule> rules) {
+    this.counters = new Counters[rules.size()];
+    for (int i = 0; i < this.counters.length; i++) {
+      this.counters[i] = new Counters(String.valueOf(rules.get(i)));
+    }
+  }
+
+  /**
+   * Returns the rules wrapped so that each of their evaluations is recorded in these metrics.
+   *
+   * <p>
+   * The built-in rules stay built-in rules so that they are still evaluated together.
+   */
+  List<Rule> instrument(final List<Rule> rules) {
+    final List<Rule> instrumented = new ArrayList<>(rules.size());
+    for (int i = 0; i < rules.size(); i++) {
+      final Rule rule = rules.get(i);
+      if (rule instanceof CountingRule) {
+        instrumented.add(new MeteredCountingRule((CountingRule) rule, this.counters[i]));
+      } else if (rule instanceof AsyncRule) {
+        instrumented.add(new MeteredAsyncRule((AsyncRule) rule, this.counters[i]));
+      } else {
+        instrumented.add(new MeteredRule(rule, this.counters[i]));
+      }
+    }
+    return instrumented;
+  }
+
+  /**
+   * Returns the current metrics of each rule, in the order the rules were added to the
+   * <tt>Ruler</tt>.
+   *
+   * <p>
+   * The metrics keep being updated while the snapshot is taken, so the counts of a snapshot may
+   * not be exactly consistent with one another.
+   *
+   * @return the current metrics of each rule
+   */
+  public ImmutableList<RuleStatistics> snapshot() {
+    final ImmutableList.Builder<RuleStatistics> statistics = ImmutableList.builder();
+    for (Counters c : this.counters) {
+      statistics.add(c.snapshot());
+    }
+    return statistics.build();
+  }
+
+  /**
+   * Registers these metrics in the platform MBean server under <tt>name</tt>.
+   *
+   * @param name the name of the MBean
+   * @return the registered instance
+   * @throws JMException if the metrics can't be registered, for instance if <tt>name</tt> is
+   * already registered
+   */
+  public ObjectInstance registerMBean(final ObjectName name) throws JMException {
+    checkNotNull(name, "name must not be null");
+    return ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+  }
+
+  @Override
+  public String[] getRules() {
+    final String[] rules = new String[this.counters.length];
+    for (int i = 0; i < rules.length; i++) {
+      rules[i] = this.counters[i].rule;
+    }
+    return rules;
+  }
+
+  @Override
+  public long[] getCallCounts() {
+    final long[] counts = new long[this.counters.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = this.counters[i].calls.sum();
+    }
+    return counts;
+  }
+
+  @Override
+  public long[] getFailureCounts() {
+    final long[] counts = new long[this.counters.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = this.counters[i].failures.sum();
+    }
+    return counts;
+  }
+
+  @Override
+  public long[] getTotalNanos() {
+    final long[] nanos = new long[this.counters.length];
+    for (int i = 0; i < nanos.length; i++) {
+      nanos[i] = this.counters[i].nanos.sum();
+    }
+    return nanos;
+  }
+
+  @Override
+  public Map<String, Long> getFailureCountsByErrorCode() {
+    final Map<String, Long> counts = new TreeMap<>();
+    for (Counters c : this.counters) {
+      c.errorCodes.forEach((errorCode, count) -> counts.merge(errorCode, count.sum(), Long::sum));
+    }
+    return counts;
+  }
+
+  @Override
+  public void reset() {
+    for (Counters c : this.counters) {
+      c.reset();
+    }
+  }
+
+  /**
+   * The striped counters of a single rule.
+   */
+  @ThreadSafe
+  private static final class Counters {
+
+    final String rule;
+    final LongAdder calls = new LongAdder();
+    final LongAdder failures = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+    final LongAdder[] latencies = new LongAdder[LATENCY_BUCKETS];
+    final ConcurrentMap<String, LongAdder> errorCodes = new ConcurrentHashMap<>();
+
+    Counters(final String rule) {
+      this.rule = rule;
+      for (int i = 0; i < LATENCY_BUCKETS; i++) {
+        this.latencies[i] = new LongAdder();
+      }
+    }
+
+    void record(final long elapsedNanos, final boolean failed) {
+      this.calls.increment();
+      this.nanos.add(elapsedNanos);
+      this.latencies[64 - Long.numberOfLeadingZeros(Math.max(elapsedNanos, 0L))].increment();
+      if (failed) {
+        this.failures.increment();
+      }
+    }
+
+    void recordErrorCodes(final RuleResult result) {
+      for (Failure failure : result.getFailures()) {
+        this.errorCodes.computeIfAbsent(failure.getErrorCode(), k -> new LongAdder()).increment();
+      }
+    }
+
+    void reset() {
+      this.calls.reset();
+      this.failures.reset();
+      this.nanos.reset();
+      for (LongAdder latency : this.latencies) {
+        latency.reset();
+      }
+      this.errorCodes.values().forEach(LongAdder::reset);
+    }
+
+    RuleStatistics snapshot() {
+      final Map<String, Long> errorCodeCounts = new TreeMap<>();
+      this.errorCodes.forEach((errorCode, count) -> errorCodeCounts.put(errorCode, count.sum()));
+      final ImmutableList.Builder<Long> histogram = ImmutableList.builder();
+      for (LongAdder latency : this.latencies) {
+        histogram.add(latency.sum());
+      }
+      return new RuleStatistics(
+          this.rule,
+          this.calls.sum(),
+          this.failures.sum(),
+          this.nanos.sum(),
+          histogram.build(),
+          ImmutableMap.copyOf(errorCodeCounts));
+    }
+  }
+
+  /**
+   * A custom rule recording its evaluations.
+   */
+  private static final class MeteredRule implements Rule {
+
+    private final Rule delegate;
+    private final Counters counters;
+
+    MeteredRule(final Rule delegate, final Counters counters) {
+      this.delegate = delegate;
+      this.counters = counters;
+    }
+
+    @Override
+    public RuleResult validate(final Password password) {
+      final long start = System.nanoTime();
+      final RuleResult result = this.delegate.validate(password);
+      this.counters.record(System.nanoTime() - start, !result.isValid());
+      this.counters.recordErrorCodes(result);
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return this.delegate.toString();
+    }
+  }
+
+  /**
+   * An asynchronous rule recording its evaluations when they complete. The latency is measured
+   * from the start of the validation to its completion.
+   */
+  private static final class MeteredAsyncRule implements AsyncRule {
+
+    private final AsyncRule delegate;
+    private final Counters counters;
+
+    MeteredAsyncRule(final AsyncRule delegate, final Counters counters) {
+      this.delegate = delegate;
+      this.counters = counters;
+    }
+
+    @Override
+    public CompletableFuture<RuleResult> validateAsync(final Password password, final Executor executor) {
+      final long start = System.nanoTime();
+      return this.delegate.validateAsync(password, executor).thenApply(result -> {
+        this.counters.record(System.nanoTime() - start, !result.isValid());
+        this.counters.recordErrorCodes(result);
+        return result;
+      });
+    }
+
+    @Override
+    public String toString() {
+      return this.delegate.toString();
+    }
+  }
+
+  /**
+   * A built-in rule recording its evaluations. The evaluation is recorded by
+   * <tt>accepts(int, int)</tt>, which <tt>CompiledRules</tt> always calls first; the error codes by
+   * <tt>validate(int, int)</tt>, which it calls only to build the result of a failure.
+   */
+  private static final class MeteredCountingRule implements CountingRule {
+
+    private final CountingRule delegate;
+    private final Counters counters;
+
+    MeteredCountingRule(final CountingRule delegate, final Counters counters) {
+      this.delegate = delegate;
+      this.counters = counters;
+    }
+
+    @Override
+    @Nullable
+    public CharMatcher getCountedCharacters() {
+      return this.delegate.getCountedCharacters();
+    }
+
+    @Override
+    public boolean accepts(final int length, final int count) {
+      final long start = System.nanoTime();
+      final boolean accepted = this.delegate.accepts(length, count);
+      this.counters.record(System.nanoTime() - start, !accepted);
+      return accepted;
+    }
+
+    @Override
+    public RuleResult validate(final int length, final int count) {
+      final RuleResult result = this.delegate.validate(length, count);
+      this.counters.recordErrorCodes(result);
+      return result;
+    }
+
+    @Override
+    public RuleResult validate(final Password password) {
+      final long start = System.nanoTime();
+      final RuleResult result = this.delegate.validate(password);
+      this.counters.record(System.nanoTime() - start, !result.isValid());
+      this.counters.recordErrorCodes(result);
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return this.delegate.toString();
+    }
+  }
+
+  /**
+   * The metrics of a single rule at a given time.
+   */
+  @Immutable
+  public static final class RuleStatistics {
+
+    private final String rule;
+    private final long callCount;
+    private final long failureCount;
+    private final long totalNanos;
+    private final ImmutableList<Long> latencyHistogram;
+    private final ImmutableMap<String, Long> failureCountsByErrorCode;
+
+    RuleStatistics(final String rule, final long callCount, final long failureCount, final long totalNanos,
+        final ImmutableList<Long> latencyHistogram, final ImmutableMap<String, Long> failureCountsByErrorCode) {
+      this.rule = rule;
+      this.callCount = callCount;
+      this.failureCount = failureCount;
+      this.totalNanos = totalNanos;
+      this.latencyHistogram = latencyHistogram;
+      this.failureCountsByErrorCode = failureCountsByErrorCode;
+    }
+
+    /**
+     *
+     * @return the description of the rule, as given by its <tt>toString()</tt> method
+     */
+    public String getRule() {
+      return this.rule;
+    }
+
+    /**
+     *
+     * @return the number of times the rule was evaluated
+     */
+    public long getCallCount() {
+      return this.callCount;
+    }
+
+    /**
+     *
+     * @return the number of times the rule rejected a password
+     */
+    public long getFailureCount() {
+      return this.failureCount;
+    }
+
+    /**
+     *
+     * @return the total time spent evaluating the rule, in nanoseconds
+     */
+    public long getTotalNanos() {
+      return this.totalNanos;
+    }
+
+    /**
+     *
+     * @return the mean time spent evaluating the rule, in nanoseconds, or <tt>0</tt> if the rule
+     * was never evaluated
+     */
+    public double getMeanNanos() {
+      return this.callCount == 0 ? 0 : (double) this.totalNanos / this.callCount;
+    }
+
+    /**
+     * Returns the number of calls per latency bucket, as described by
+     * <tt>RuleMetrics.LATENCY_BUCKETS</tt>.
+     *
+     * @return the latency histogram of the rule
+     */
+    public ImmutableList<Long> getLatencyHistogram() {
+      return this.latencyHistogram;
+    }
+
+    /**
+     * Returns, for each error code reported by the rule, the number of failures reporting it,
+     * sorted by error code.
+     *
+     * @return the failure counts by error code
+     */
+    public ImmutableMap<String, Long> getFailureCountsByErrorCode() {
+      return this.failureCountsByErrorCode;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("rule", this.rule)
+          .add("callCount", this.callCount)
+          .add("failureCount", this.failureCount)
+          .add("meanNanos", getMeanNanos())
+          .add("failureCountsByErrorCode", this.failureCountsByErrorCode)
+          .toString();
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the metrics of a <tt>Ruler</tt>.
+ *
+ * <p>
+ * The arrays are indexed by rule, in the order the rules were added to the <tt>Ruler</tt>.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ * @see RuleMetrics
+ */
+public interface RuleMetricsMXBean {
+
+  /**
+   *
+   * @return the description of each rule
+   */
+  public String[] getRules();
+
+  /**
+   *
+   * @return the number of times each rule was evaluated
+   */
+  public long[] getCallCounts();
+
+  /**
+   *
+   * @return the number of times each rule rejected a password
+   */
+  public long[] getFailureCounts();
+
+  /**
+   *
+   * @return the total time spent evaluating each rule, in nanoseconds
+   */
+  public long[] getTotalNanos();
+
+  /**
+   *
+   * @return the number of failures reporting each error code, for all the rules
+   */
+  public Map<String, Long> getFailureCountsByErrorCode();
+
+  /**
+   * Resets all the metrics to zero.
+   */
+  public void reset();
+
+}
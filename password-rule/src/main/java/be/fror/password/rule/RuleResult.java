@@ -15,6 +15,8 @@
  */
 package be.fror.password.rule;
 
+import static com.google.common.base.Preconditions.checkState;
+
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -46,6 +48,13 @@ public abstract class RuleResult {
    */
   public abstract ImmutableList<Failure> getFailures();
 
+  /**
+   * Returns an unmodifiable result equal to this one.
+   *
+   * @return <tt>this</tt> if it can't be modified, a frozen copy of it otherwise
+   */
+  abstract RuleResult freeze();
+
   /**
    *
    *
@@ -138,6 +147,11 @@ public abstract class RuleResult {
       return true;
     }
 
+    @Override
+    RuleResult freeze() {
+      return this;
+    }
+
     @Override
     public ImmutableList<Failure> getFailures() {
       return EMPTY_FAILURES;
@@ -161,14 +175,25 @@ public abstract class RuleResult {
   }
 
   /**
-   * Class visible for building and chaining reasons
+   * Class visible for building and chaining reasons.
+   *
+   * <p>
+   * The results returned by a <tt>Ruler</tt> may be shared, for instance when they are cached:
+   * such results are frozen and can't be modified.
    */
   public static final class FailedResult extends RuleResult {
 
     private final List<Failure> failures;
+    private final boolean frozen;
 
     FailedResult() {
       this.failures = new ArrayList<>();
+      this.frozen = false;
+    }
+
+    private FailedResult(final ImmutableList<Failure> failures) {
+      this.failures = failures;
+      this.frozen = true;
     }
 
     @Override
@@ -178,9 +203,28 @@ public abstract class RuleResult {
 
     @Override
     public ImmutableList<Failure> getFailures() {
+      if (this.frozen) {
+        return (ImmutableList<Failure>) this.failures;
+      }
       return ImmutableList.copyOf(failures);
     }
 
+    /**
+     *
+     * @return <tt>true</tt> if no failure can be added to this result, <tt>false</tt> otherwise
+     */
+    public boolean isFrozen() {
+      return this.frozen;
+    }
+
+    @Override
+    FailedResult freeze() {
+      if (this.frozen) {
+        return this;
+      }
+      return new FailedResult(ImmutableList.copyOf(this.failures));
+    }
+
     /**
      * 
      * @param errorCode
@@ -236,13 +280,16 @@ public abstract class RuleResult {
      * @param errorCode
      * @param parameters
      * @return 
+     * @throws IllegalStateException if this result is frozen
      */
     public FailedResult addFailure(final String errorCode, final Map<String, Object> parameters) {
+      checkState(!this.frozen, "This result is frozen");
       this.failures.add(new Failure(errorCode, ImmutableMap.copyOf(parameters)));
       return this;
     }
 
     void addFailures(final ImmutableList<Failure> failures) {
+      checkState(!this.frozen, "This result is frozen");
       this.failures.addAll(failures);
     }
 
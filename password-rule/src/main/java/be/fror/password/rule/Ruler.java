@@ -23,15 +23,44 @@ import be.fror.common.function.MoreCollectors;
 import be.fror.common.function.Suppliers;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import com.google.common.math.DoubleMath;
 import com.google.common.primitives.Chars;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.annotation.concurrent.ThreadSafe;
@@ -54,14 +83,55 @@ public final class Ruler {
     return new Builder().addRules(rules).build();
   }
 
+  /**
+   * The number of passwords generated by each task of <tt>generatePasswordsInParallel</tt>.
+   */
+  private static final int PARALLEL_BLOCK_SIZE = 1_024;
+
+  private static final Collector<RuleResult, ValidationSummary.Accumulator, ValidationSummary> SUMMARY_COLLECTOR = Collector.of(
+      ValidationSummary.Accumulator::new,
+      ValidationSummary.Accumulator::add,
+      ValidationSummary.Accumulator::merge,
+      ValidationSummary.Accumulator::toSummary,
+      Collector.Characteristics.UNORDERED);
+
   @VisibleForTesting
   final ImmutableSet<Rule> rules;
 
+  private final CompiledRules compiledRules;
+
+  @Nullable
+  private final RuleMetrics metrics;
+
+  private final boolean failFast;
+
+  private final Executor executor;
+
+  @Nullable
+  private final ResultCache cache;
+
+  private final ImmutableMap<CharacterRule, Double> generationWeights;
+
   private final Supplier<Generator> generator;
 
   @VisibleForTesting
   Ruler(Builder builder) {
     this.rules = builder.rules.build();
+    if (builder.recordMetrics) {
+      this.metrics = new RuleMetrics(this.rules.asList());
+      this.compiledRules = CompiledRules.compile(this.metrics.instrument(this.rules.asList()), builder.adaptiveOrdering);
+    } else {
+      this.metrics = null;
+      this.compiledRules = CompiledRules.compile(this.rules, builder.adaptiveOrdering);
+    }
+    this.failFast = builder.failFast;
+    this.executor = builder.executor;
+    this.cache = builder.cacheMaximumSize > 0
+        ? new ResultCache(builder.cacheMaximumSize, builder.cacheDuration, builder.cacheUnit)
+        : null;
+    this.generationWeights = ImmutableMap.copyOf(builder.generationWeights);
+    checkState(this.rules.containsAll(this.generationWeights.keySet()),
+        "Generation weights were given to rules which were not added: %s", this.generationWeights.keySet());
     this.generator = Suppliers.memoize(this::createGenerator);
   }
 
@@ -69,89 +139,670 @@ public final class Ruler {
    * Validates the password according to the defined rules and aggregates their result in a
    * <tt>{@link RuleResult}</tt>.
    *
+   * <p>
+   * If this ruler was built in fail-fast mode, the result only contains the failures of the first
+   * failing rule, as returned by <tt>validatePasswordFailFast(CharSequence)</tt>.
+   *
+   * <p>
+   * If this ruler caches its results, the result of a password validated recently is returned
+   * without evaluating the rules again. Such a result is frozen.
+   *
    * @param password the password to validatePassword
    * @return the result of the validation
+   * @see Builder#failFast(boolean)
+   * @see Builder#cacheResults(long, long, TimeUnit)
    */
   public RuleResult validatePassword(final String password) {
+    return validateCached(password);
+  }
+
+  /**
+   * Validates the password held by <tt>password</tt> like <tt>validatePassword(String)</tt>.
+   *
+   * <p>
+   * The characters are never copied, not even for custom rules, which get a view of them through
+   * <tt>Password.getCharacters()</tt>: <tt>password</tt> can be wiped once the validation is over.
+   *
+   * @param password the characters of the password to validate
+   * @return the result of the validation
+   */
+  public RuleResult validatePassword(final char[] password) {
     checkNotNull(password, "password must not be null");
-    final Password pwd = new Password(password);
-    final RuleResult.FailedResult failedResult = RuleResult.failed();
-    boolean failed = false;
-    for (Rule rule : this.rules) {
-      final RuleResult result = rule.validate(pwd);
-      if (!result.isValid()) {
-        failed = true;
-        failedResult.addFailures(result.getFailures());
-      }
+    return validateCached(Password.wrap(password).getCharacters());
+  }
+
+  /**
+   * Validates the UTF-8 encoded password <tt>password</tt> like <tt>validatePassword(String)</tt>.
+   *
+   * <p>
+   * The built-in rules work directly on the bytes: the ASCII characters are counted as they are
+   * and the other characters are decoded one at a time, so no <tt>String</tt> is created unless
+   * custom rules are defined. Malformed sequences are handled as
+   * <tt>new String(password, UTF_8)</tt> would. The results are never cached.
+   *
+   * @param password the UTF-8 encoded password to validate
+   * @return the result of the validation
+   */
+  public RuleResult validateUtf8(final byte[] password) {
+    checkNotNull(password, "password must not be null");
+    return this.compiledRules.validateUtf8(password, 0, password.length, this.failFast);
+  }
+
+  /**
+   * Validates the UTF-8 encoded password made of the remaining bytes of <tt>password</tt> like
+   * <tt>validateUtf8(byte[])</tt>.
+   *
+   * <p>
+   * The position of <tt>password</tt> is not changed. The bytes of a direct buffer are copied
+   * first.
+   *
+   * @param password the buffer containing the UTF-8 encoded password to validate
+   * @return the result of the validation
+   */
+  public RuleResult validateUtf8(final ByteBuffer password) {
+    checkNotNull(password, "password must not be null");
+    if (password.hasArray()) {
+      return this.compiledRules.validateUtf8(password.array(), password.arrayOffset() + password.position(), password.remaining(), this.failFast);
+    }
+    final byte[] bytes = new byte[password.remaining()];
+    password.duplicate().get(bytes);
+    return this.compiledRules.validateUtf8(bytes, 0, bytes.length, this.failFast);
+  }
+
+  private RuleResult validateCached(final CharSequence password) {
+    if (this.cache != null) {
+      checkNotNull(password, "password must not be null");
+      return this.cache.get(password, this::validate);
+    }
+    return validate(password);
+  }
+
+  /**
+   * Returns the statistics of the cache of the results of <tt>validatePassword(String)</tt>.
+   *
+   * @return the statistics of the cache
+   * @throws IllegalStateException if this ruler wasn't built with
+   * <tt>Builder.cacheResults(long, long, TimeUnit)</tt>
+   */
+  public CacheStats getCacheStats() {
+    checkState(this.cache != null, "This Ruler doesn't cache its results");
+    return this.cache.stats();
+  }
+
+  /**
+   * Discards all the cached results, if any.
+   */
+  public void invalidateCache() {
+    if (this.cache != null) {
+      this.cache.invalidateAll();
     }
-    if (failed) {
-      return failedResult;
+  }
+
+  /**
+   * Validates the password according to the defined rules, running the custom rules concurrently.
+   *
+   * <p>
+   * The built-in rules are evaluated on the calling thread. Then all the custom rules are started
+   * at once on the executor of this ruler: the <tt>AsyncRule</tt>s through
+   * <tt>validateAsync(Password, Executor)</tt>, the other custom rules as tasks of the executor.
+   * The returned future completes when all of them have completed, with the same result as
+   * <tt>validatePassword(String)</tt>.
+   *
+   * <p>
+   * If this ruler was built in fail-fast mode, the custom rules are not started if a built-in rule
+   * fails, and the result only contains the failures of the first failing rule.
+   *
+   * @param password the password to validate
+   * @return a future completed with the result of the validation
+   * @see Builder#executor(Executor)
+   */
+  public CompletableFuture<RuleResult> validatePasswordAsync(final String password) {
+    checkNotNull(password, "password must not be null");
+    return this.compiledRules.validateAsync(password, this.executor, this.failFast);
+  }
+
+  /**
+   * Validates the password and stops at the first failing rule, whose result is returned.
+   *
+   * <p>
+   * The rules are not evaluated in the order they were added: the rules depending only on the
+   * length of the password are evaluated first, then the character rules, which share a single
+   * reading of the password, then the custom rules in their original order. If this ruler was built
+   * with an adaptive ordering, that order changes according to the observed costs and rejection
+   * rates of the rules.
+   *
+   * @param password the password to validate
+   * @return the result of the first failing rule, or <tt>RuleResult.ok()</tt> if the password is
+   * valid
+   */
+  public RuleResult validatePasswordFailFast(final CharSequence password) {
+    checkNotNull(password, "password must not be null");
+    return this.compiledRules.validateFailFast(password);
+  }
+
+  /**
+   * Validates all the passwords of <tt>passwords</tt> and aggregates the results.
+   *
+   * <p>
+   * The stream is processed in parallel, by chunks, on the common fork-join pool. Only the counts
+   * of the results are kept so that any number of passwords can be validated.
+   *
+   * @param passwords the passwords to validate
+   * @return the aggregated counts of the results
+   */
+  public ValidationSummary validateAll(final Stream<? extends CharSequence> passwords) {
+    checkNotNull(passwords, "passwords must not be null");
+    return passwords.parallel()
+        .map(this::validate)
+        .collect(SUMMARY_COLLECTOR);
+  }
+
+  /**
+   * Validates all the passwords of <tt>passwords</tt>, gives each result to <tt>consumer</tt> and
+   * aggregates the results.
+   *
+   * <p>
+   * The passwords are processed in parallel, by chunks, on the common fork-join pool. Therefore
+   * <tt>consumer</tt> is called from several threads, in no particular order, and must be
+   * thread-safe.
+   *
+   * @param passwords the passwords to validate
+   * @param consumer the consumer of each result
+   * @return the aggregated counts of the results
+   */
+  public ValidationSummary validateAll(final Iterable<? extends CharSequence> passwords, final Consumer<? super RuleResult> consumer) {
+    checkNotNull(passwords, "passwords must not be null");
+    checkNotNull(consumer, "consumer must not be null");
+    return StreamSupport.stream(passwords.spliterator(), true)
+        .map(this::validate)
+        .peek(consumer)
+        .collect(SUMMARY_COLLECTOR);
+  }
+
+  /**
+   * Validates each line of a file, considering each line as a password.
+   *
+   * <p>
+   * The file is read as UTF-8 and lines are separated by <tt>'\n'</tt> or <tt>"\r\n"</tt>.
+   * Every line is validated, including empty lines, but a last empty line is ignored.
+   *
+   * <p>
+   * The file is memory-mapped and the lines made only of ASCII characters are validated directly
+   * from their bytes, without being decoded into <tt>String</tt>s unless custom rules are defined.
+   * Only the failing results are given to <tt>failureHandler</tt>, along with the offset, in bytes,
+   * of the failing line in the file.
+   *
+   * <p>
+   * If this ruler was built in fail-fast mode, each result only contains the failures of the first
+   * failing rule, as returned by <tt>validatePasswordFailFast(CharSequence)</tt>.
+   *
+   * @param file the file containing the passwords, one per line
+   * @param failureHandler the consumer of each failing result and the offset of its line
+   * @return the aggregated counts of the results of all the lines
+   * @throws IOException if the file can't be read or if a line is longer than 1 GiB
+   */
+  public ValidationSummary validateLines(final Path file, final ObjLongConsumer<? super RuleResult> failureHandler) throws IOException {
+    checkNotNull(file, "file must not be null");
+    checkNotNull(failureHandler, "failureHandler must not be null");
+    return new MappedLineValidator(this.compiledRules, MappedLineValidator.DEFAULT_WINDOW_SIZE, this.failFast).validate(file, failureHandler);
+  }
+
+  private RuleResult validate(final CharSequence password) {
+    checkNotNull(password, "password must not be null");
+    if (this.failFast) {
+      return this.compiledRules.validateFailFast(password);
     } else {
-      return RuleResult.ok();
+      return this.compiledRules.validate(password);
     }
   }
 
+  /**
+   * Returns whether the password is accepted by all the rules of this ruler.
+   *
+   * <p>
+   * This method is a fast path of <tt>validatePassword(password).isValid()</tt>: it stops at the
+   * first failing rule and doesn't allocate any object unless custom rules are defined, in which
+   * case they are given a <tt>Password</tt> as usual.
+   *
+   * @param password the password to validate
+   * @return <tt>true</tt> if the password is valid, <tt>false</tt> otherwise
+   */
+  public boolean isValid(final CharSequence password) {
+    checkNotNull(password, "password must not be null");
+    return this.compiledRules.isValid(password);
+  }
+
+  /**
+   * Returns a bit mask of the rules failing to validate the password.
+   *
+   * <p>
+   * The bit <tt>i</tt> is set if the <tt>i</tt>-th rule of this ruler, in the order they were
+   * added, failed. Rules beyond the 63rd all share the highest bit. A mask of <tt>0</tt> means that
+   * the password is valid.
+   *
+   * <p>
+   * Like <tt>isValid(CharSequence)</tt>, this method doesn't allocate any object unless custom
+   * rules are defined. The details of the failures can be retrieved afterwards with
+   * <tt>validatePassword(String)</tt>.
+   *
+   * @param password the password to validate
+   * @return a mask of the failing rules, <tt>0</tt> if the password is valid
+   */
+  public long getFailureMask(final CharSequence password) {
+    checkNotNull(password, "password must not be null");
+    return this.compiledRules.getFailureMask(password);
+  }
+
+  /**
+   * Returns the compiled rules of this ruler, which may be instrumented.
+   */
+  CompiledRules getCompiledRules() {
+    return this.compiledRules;
+  }
+
+  boolean isFailFast() {
+    return this.failFast;
+  }
+
+  /**
+   * Returns the metrics of the rules of this ruler.
+   *
+   * @return the metrics recorded by the validations of this ruler
+   * @throws IllegalStateException if this ruler wasn't built with
+   * <tt>Builder.recordMetrics(true)</tt>
+   */
+  public RuleMetrics getMetrics() {
+    checkState(this.metrics != null, "This Ruler doesn't record metrics");
+    return this.metrics;
+  }
+
   /**
    * Generates a password of length <tt>length</tt> using <tt>random</tt>.
    *
    * @param length the length of the password to generate
    * @param random the random number generator to use to generate the password
    * @return A password valid according the provided character rules.
-   * @throws IllegalArgumentException if <tt>length &lt;= 0</tt>
+   * @throws IllegalArgumentException if <tt>length</tt> is not in <tt>getGeneratedLengths()</tt>
    * @throws IllegalStateException if no <tt>CharacterRule</tt> were provided when creating this
-   * ruler.
+   * ruler, or if its rules can't be all satisfied
    */
   public String generatePassword(final int length, final Random random) {
-    final Generator gen = this.generator.get();
-    checkArgument(length >= gen.minLength, "length (%s) must be greater than %s given the CharacterRules provided", length, gen.minLength);
+    final Generator gen = getGenerator(length);
+    checkNotNull(random, "random must not be null");
+    final char[] password = new char[length];
+    gen.generate(password, RandomSource.of(random, BitPoolRandomSource.poolSizeFor(length)));
+    return new String(password);
+  }
+
+  /**
+   * Generates a password of length <tt>length</tt> using <tt>random</tt>.
+   *
+   * @param length the length of the password to generate
+   * @param random the random number generator to use to generate the password
+   * @return A password valid according the provided character rules.
+   * @throws IllegalArgumentException if <tt>length</tt> is not in <tt>getGeneratedLengths()</tt>
+   * @throws IllegalStateException if no <tt>CharacterRule</tt> were provided when creating this
+   * ruler, or if its rules can't be all satisfied
+   */
+  public String generatePassword(final int length, final SplittableRandom random) {
+    final Generator gen = getGenerator(length);
+    checkNotNull(random, "random must not be null");
+    final char[] password = new char[length];
+    gen.generate(password, RandomSource.of(random));
+    return new String(password);
+  }
+
+  /**
+   * Generates in parallel <tt>count</tt> passwords of length <tt>length</tt>.
+   *
+   * <p>
+   * The passwords are generated by blocks, each block being generated by its own
+   * <tt>SplittableRandom</tt>, split from <tt>random</tt> when this method is called. The blocks
+   * are then generated on the common fork-join pool without any contention between threads.
+   *
+   * <p>
+   * The returned stream is ordered and its content only depends on the state of <tt>random</tt>:
+   * given a <tt>SplittableRandom</tt> created with the same seed, the same passwords are generated
+   * in the same order, whatever the number of threads.
+   *
+   * @param count the number of passwords to generate
+   * @param length the length of the passwords to generate
+   * @param random the random number generator from which the generators of each block are split
+   * @return a parallel stream of <tt>count</tt> passwords valid according the provided character
+   * rules.
+   * @throws IllegalArgumentException if <tt>count &lt; 0</tt> or if <tt>length</tt> is not in
+   * <tt>getGeneratedLengths()</tt>
+   * @throws IllegalStateException if no <tt>CharacterRule</tt> were provided when creating this
+   * ruler, or if its rules can't be all satisfied
+   */
+  public Stream<String> generatePasswordsInParallel(final int count, final int length, final SplittableRandom random) {
+    checkArgument(count >= 0, "count (%s) must not be negative", count);
+    final Generator gen = getGenerator(length);
+    checkNotNull(random, "random must not be null");
+    final int blocks = (count + PARALLEL_BLOCK_SIZE - 1) / PARALLEL_BLOCK_SIZE;
+    final SplittableRandom[] blockRandoms = new SplittableRandom[blocks];
+    for (int i = 0; i < blocks; i++) {
+      blockRandoms[i] = random.split();
+    }
+    return IntStream.range(0, blocks).parallel().mapToObj(block -> {
+      final int size = Math.min(PARALLEL_BLOCK_SIZE, count - block * PARALLEL_BLOCK_SIZE);
+      final RandomSource source = RandomSource.of(blockRandoms[block]);
+      final char[] password = new char[length];
+      final String[] passwords = new String[size];
+      for (int i = 0; i < size; i++) {
+        gen.generate(password, source);
+        passwords[i] = new String(password);
+      }
+      return Stream.of(passwords);
+    }).flatMap(Function.identity());
+  }
+
+  /**
+   * Generates <tt>count</tt> passwords of length <tt>length</tt> using <tt>random</tt>.
+   *
+   * <p>
+   * The passwords are generated lazily, when the stream is consumed, in a single buffer reused
+   * for all of them. The returned stream may be made parallel but the passwords are still generated
+   * one after the other.
+   *
+   * @param count the number of passwords to generate
+   * @param length the length of the passwords to generate
+   * @param random the random number generator to use to generate the passwords
+   * @return a stream of <tt>count</tt> passwords valid according the provided character rules.
+   * @throws IllegalArgumentException if <tt>count &lt; 0</tt> or if <tt>length</tt> is not in
+   * <tt>getGeneratedLengths()</tt>
+   * @throws IllegalStateException if no <tt>CharacterRule</tt> were provided when creating this
+   * ruler, or if its rules can't be all satisfied
+   */
+  public Stream<String> generatePasswords(final int count, final int length, final Random random) {
+    checkArgument(count >= 0, "count (%s) must not be negative", count);
+    final Generator gen = getGenerator(length);
+    checkNotNull(random, "random must not be null");
+    final char[] password = new char[length];
+    return StreamSupport.stream(new Spliterators.AbstractSpliterator<String>(count, Spliterator.ORDERED | Spliterator.NONNULL) {
+      private final RandomSource source = RandomSource.of(random, BitPoolRandomSource.BATCH_POOL_SIZE);
+      private int remaining = count;
+
+      @Override
+      public boolean tryAdvance(Consumer<? super String> action) {
+        if (this.remaining <= 0) {
+          return false;
+        }
+        this.remaining--;
+        gen.generate(password, this.source);
+        action.accept(new String(password));
+        return true;
+      }
+    }, false);
+  }
+
+  /**
+   * Generates <tt>count</tt> passwords of length <tt>length</tt> using <tt>random</tt> and appends
+   * them to <tt>out</tt>, each followed by <tt>'\n'</tt>.
+   *
+   * <p>
+   * No object is created per password: they are generated in a single buffer which is written
+   * directly to <tt>out</tt>. <tt>Writer</tt>s, <tt>StringBuilder</tt>s and <tt>CharBuffer</tt>s
+   * are given the buffer as a <tt>char[]</tt>. To write the passwords to a file, use a buffered
+   * writer.
+   *
+   * @param count the number of passwords to generate
+   * @param length the length of the passwords to generate
+   * @param random the random number generator to use to generate the passwords
+   * @param out where to write the generated passwords
+   * @throws IOException if <tt>out</tt> can't be written to
+   * @throws IllegalArgumentException if <tt>count &lt; 0</tt> or if <tt>length</tt> is not in
+   * <tt>getGeneratedLengths()</tt>
+   * @throws IllegalStateException if no <tt>CharacterRule</tt> were provided when creating this
+   * ruler, or if its rules can't be all satisfied
+   */
+  public void generatePasswords(final int count, final int length, final Random random, final Appendable out) throws IOException {
+    checkArgument(count >= 0, "count (%s) must not be negative", count);
+    final Generator gen = getGenerator(length);
     checkNotNull(random, "random must not be null");
-    return gen.generate(length, random);
+    checkNotNull(out, "out must not be null");
+    final char[] password = new char[length];
+    final CharBuffer view = CharBuffer.wrap(password);
+    final RandomSource source = RandomSource.of(random, BitPoolRandomSource.BATCH_POOL_SIZE);
+    for (int i = 0; i < count; i++) {
+      gen.generate(password, source);
+      if (out instanceof Writer) {
+        ((Writer) out).write(password);
+      } else if (out instanceof StringBuilder) {
+        ((StringBuilder) out).append(password);
+      } else if (out instanceof CharBuffer) {
+        ((CharBuffer) out).put(password);
+      } else {
+        out.append(view);
+      }
+      out.append('\n');
+    }
+  }
+
+  /**
+   * Returns the range of the lengths of the passwords this ruler can generate.
+   *
+   * <p>
+   * The range takes into account the <tt>CharacterRule</tt>s, the rules on the length of the
+   * password and the rules excluding characters, such as <tt>Rule.noWhitespace()</tt>, which are
+   * all satisfied by construction. This method can be used to check, up front, whether the rules
+   * of this ruler allow to generate a password at all.
+   *
+   * @return the range of the lengths of the passwords this ruler can generate
+   * @throws IllegalStateException if no <tt>CharacterRule</tt> were provided when creating this
+   * ruler, or if its rules can't be all satisfied
+   */
+  public Range<Integer> getGeneratedLengths() {
+    final Generator gen = this.generator.get();
+    return Range.closed(gen.minLength, gen.maxLength);
   }
 
+  /**
+   * Returns the entropy, in bits, of the passwords of length <tt>length</tt> generated by this
+   * ruler.
+   *
+   * <p>
+   * The entropy is the one of the characters drawn: the mandatory characters of each
+   * <tt>CharacterRule</tt> among its valid characters, and the remaining characters among all the
+   * valid characters. The shuffle of these characters is ignored. If some rules are checked after
+   * the generation, such as custom rules, the passwords they reject make the actual entropy
+   * slightly lower.
+   *
+   * <p>
+   * To estimate the strength of passwords chosen by users, use a <tt>StrengthEstimator</tt>.
+   *
+   * @param length the length of the generated passwords
+   * @return the entropy of the generated passwords, in bits
+   * @throws IllegalArgumentException if <tt>length</tt> is not in <tt>getGeneratedLengths()</tt>
+   * @throws IllegalStateException if no <tt>CharacterRule</tt> were provided when creating this
+   * ruler, or if its rules can't be all satisfied
+   */
+  public double getGeneratedEntropy(final int length) {
+    return getGenerator(length).entropy(length);
+  }
+
+  private Generator getGenerator(final int length) {
+    final Generator gen = this.generator.get();
+    checkArgument(gen.minLength <= length && length <= gen.maxLength,
+        "length (%s) must be between %s and %s given the rules provided", length, gen.minLength, gen.maxLength);
+    return gen;
+  }
+
+  /**
+   * Compiles the rules of this ruler into a generator.
+   *
+   * <p>
+   * The <tt>CharacterRule</tt>s, the rules on the length and the rules excluding characters are
+   * satisfied by construction. The other rules, such as custom rules, are checked after the
+   * generation of each password, which is generated again if they don't accept it.
+   */
   private Generator createGenerator() {
     final ImmutableSet<CharacterRule> charRules = rules.stream()
         .filter(e -> e instanceof CharacterRule)
         .map(e -> (CharacterRule) e)
         .collect(MoreCollectors.toImmutableSet());
     checkState(!charRules.isEmpty(), "No CharacterRule were added to this Ruler");
-    Set<Character> uniqueChars = new TreeSet<>();
-    int minLen = 0;
+    int minLength = 0;
+    int maxLength = Integer.MAX_VALUE;
+    CharMatcher excluded = CharMatcher.NONE;
+    final List<Rule> checkedRules = new ArrayList<>();
+    for (Rule rule : this.rules) {
+      if (rule instanceof LengthRule) {
+        minLength = Math.max(minLength, ((LengthRule) rule).getMinimumLength());
+        maxLength = Math.min(maxLength, ((LengthRule) rule).getMaximumLength());
+      } else if (rule instanceof StandardRules.ExcludedCharactersRule) {
+        excluded = excluded.or(((StandardRules.ExcludedCharactersRule) rule).getCountedCharacters());
+      } else if (!(rule instanceof DefaultCharacterRule)) {
+        // Custom CharacterRules are used to generate characters, but checked nevertheless.
+        checkedRules.add(rule);
+      }
+    }
+
+    final char[][] sources = new char[charRules.size()][];
+    final int[] counts = new int[charRules.size()];
+    final Set<Character> uniqueChars = new TreeSet<>();
+    int mandatoryLength = 0;
+    int i = 0;
     for (CharacterRule rule : charRules) {
-      for (char c : rule.getValidCharacters().toCharArray()) {
+      sources[i] = excluded.removeFrom(rule.getValidCharacters()).toCharArray();
+      counts[i] = rule.getNumberOfCharacters();
+      checkState(sources[i].length > 0 || counts[i] == 0, "All the characters of %s are excluded by the other rules", rule);
+      for (char c : sources[i]) {
         uniqueChars.add(c);
       }
-      minLen += rule.getNumberOfCharacters();
+      mandatoryLength += counts[i];
+      i++;
     }
-    return new Generator(charRules, Chars.toArray(uniqueChars), minLen);
+    checkState(!uniqueChars.isEmpty(), "All the characters of the CharacterRules are excluded by the other rules");
+    minLength = Math.max(minLength, mandatoryLength);
+    checkState(minLength <= maxLength,
+        "No password can be generated: at least %s characters are required but at most %s are allowed", minLength, maxLength);
+    final char[] allChars = Chars.toArray(uniqueChars);
+    return new Generator(sources, counts, allChars, createWeights(charRules, sources, allChars), minLength, maxLength,
+        checkedRules.isEmpty() ? null : CompiledRules.compile(checkedRules));
   }
 
-  class Generator {
+  /**
+   * Returns the table drawing the characters of <tt>allChars</tt> according to the generation
+   * weights, or <tt>null</tt> if no weight was given, in which case the characters are equally
+   * likely.
+   *
+   * <p>
+   * Each rule shares its weight between its characters, so a character valid for several rules
+   * gets a share of each of their weights.
+   */
+  @Nullable
+  private AliasTable createWeights(final ImmutableSet<CharacterRule> charRules, final char[][] sources, final char[] allChars) {
+    if (this.generationWeights.isEmpty()) {
+      return null;
+    }
+    final double[] charWeights = new double[allChars.length];
+    double sum = 0;
+    int r = 0;
+    for (CharacterRule rule : charRules) {
+      final double weight = this.generationWeights.getOrDefault(rule, 1.0);
+      for (char c : sources[r]) {
+        charWeights[Arrays.binarySearch(allChars, c)] += weight / sources[r].length;
+      }
+      sum += sources[r].length > 0 ? weight : 0;
+      r++;
+    }
+    // Leaves room for the rounding of each weight.
+    final double scale = (AliasTable.MAX_TOTAL_WEIGHT >> 1) / sum;
+    final int[] weights = new int[allChars.length];
+    for (int i = 0; i < allChars.length; i++) {
+      weights[i] = (int) Math.max(1, Math.round(charWeights[i] * scale));
+    }
+    return new AliasTable(weights);
+  }
+
+  static class Generator {
 
-    final ImmutableSet<CharacterRule> rules;
+    /**
+     * The number of passwords generated before giving up when the checked rules reject them all.
+     */
+    static final int MAX_ATTEMPTS = 1_000;
+
+    final char[][] sources;
+    final int[] counts;
     final char[] allChars;
+    /**
+     * The table drawing the indices of <tt>allChars</tt>, or <tt>null</tt> if they are all equally
+     * likely.
+     */
+    @Nullable
+    final AliasTable weights;
     final int minLength;
+    final int maxLength;
+    /**
+     * The rules which aren't satisfied by construction, or <tt>null</tt> if there are none.
+     */
+    @Nullable
+    final CompiledRules checkedRules;
 
-    Generator(ImmutableSet<CharacterRule> rules, char[] allChars, int minLength) {
-      this.rules = rules;
+    Generator(char[][] sources, int[] counts, char[] allChars, @Nullable AliasTable weights, int minLength, int maxLength,
+        @Nullable CompiledRules checkedRules) {
+      this.sources = sources;
+      this.counts = counts;
       this.allChars = allChars;
+      this.weights = weights;
       this.minLength = minLength;
+      this.maxLength = maxLength;
+      this.checkedRules = checkedRules;
     }
 
-    String generate(int length, Random random) {
-      final char[] password = new char[length];
+    /**
+     * Fills <tt>password</tt> with a newly generated password.
+     *
+     * @throws IllegalStateException if no password accepted by the checked rules is generated in
+     * <tt>MAX_ATTEMPTS</tt> attempts
+     */
+    void generate(char[] password, RandomSource random) {
+      if (this.checkedRules == null) {
+        fill(password, random);
+        return;
+      }
+      final CharBuffer view = CharBuffer.wrap(password);
+      for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+        fill(password, random);
+        if (this.checkedRules.isValid(view)) {
+          return;
+        }
+      }
+      throw new IllegalStateException("No generated password was accepted by all the rules after " + MAX_ATTEMPTS + " attempts");
+    }
+
+    double entropy(int length) {
+      double bits = 0;
+      int remaining = length;
+      for (int r = 0; r < this.sources.length; r++) {
+        bits += this.counts[r] * DoubleMath.log2(this.sources[r].length);
+        remaining -= this.counts[r];
+      }
+      return bits + remaining * (this.weights == null ? DoubleMath.log2(this.allChars.length) : this.weights.entropy());
+    }
+
+    private void fill(char[] password, RandomSource random) {
+      final int length = password.length;
       int offset = 0;
 
       // Add mandatory characters
-      for (CharacterRule rule : rules) {
-        final String source = rule.getValidCharacters();
-        for (int i = 0, l = rule.getNumberOfCharacters(); i < l; i++) {
-          password[offset++] = source.charAt(random.nextInt(source.length()));
+      for (int r = 0; r < this.sources.length; r++) {
+        final char[] source = this.sources[r];
+        for (int i = 0, l = this.counts[r]; i < l; i++) {
+          password[offset++] = source[random.nextInt(source.length)];
         }
       }
 
       // Add to match length
-      while (offset < length) {
-        password[offset++] = allChars[random.nextInt(allChars.length)];
+      if (this.weights == null) {
+        while (offset < length) {
+          password[offset++] = this.allChars[random.nextInt(this.allChars.length)];
+        }
+      } else {
+        while (offset < length) {
+          password[offset++] = this.allChars[this.weights.draw(random)];
+        }
       }
 
       // Shuffle the charaters // What? No Arrays.shuffle??
@@ -161,8 +812,6 @@ public final class Ruler {
         password[pos] = password[i];
         password[i] = swap;
       }
-
-      return new String(password);
     }
   }
 
@@ -187,7 +836,15 @@ public final class Ruler {
   public static class Builder {
 
     private boolean nonEmpty = false;
+    private boolean failFast = false;
+    private boolean adaptiveOrdering = false;
+    private boolean recordMetrics = false;
+    private Executor executor = ForkJoinPool.commonPool();
+    private long cacheMaximumSize = 0;
+    private long cacheDuration = 0;
+    private TimeUnit cacheUnit = TimeUnit.NANOSECONDS;
     private final ImmutableSet.Builder<Rule> rules = ImmutableSet.builder();
+    private final Map<CharacterRule, Double> generationWeights = new HashMap<>();
 
     /**
      * Instantiates a new <tt>Rule</tt> builder.
@@ -228,12 +885,147 @@ public final class Ruler {
       return this;
     }
 
+    /**
+     * Sets whether the <tt>Ruler</tt> being built stops validating a password at the first failing
+     * rule.
+     *
+     * <p>
+     * In fail-fast mode, <tt>validatePassword</tt> and <tt>validateAll</tt> only report the
+     * failures of the first failing rule, the rules being evaluated from the cheapest to the most
+     * expensive. This is useful when only a yes/no answer is needed. By default, all the rules
+     * are evaluated.
+     *
+     * @param failFast <tt>true</tt> to stop at the first failing rule, <tt>false</tt> to evaluate
+     * all the rules
+     * @return <tt>this</tt>
+     * @see Ruler#validatePasswordFailFast(CharSequence)
+     */
+    public Builder failFast(boolean failFast) {
+      this.failFast = failFast;
+      return this;
+    }
+
+    /**
+     * Sets whether the <tt>Ruler</tt> being built adapts the order of evaluation of its rules when
+     * validating in fail-fast mode.
+     *
+     * <p>
+     * When enabled, a small sample of the fail-fast validations, including <tt>isValid</tt>,
+     * evaluate and time all the rules. The rules are then periodically reordered so that the
+     * cheapest and most selective rules are evaluated first. This is useful when cheap rules are
+     * mixed with expensive custom rules. By default, the order is fixed.
+     *
+     * @param adaptiveOrdering <tt>true</tt> to adapt the order of evaluation, <tt>false</tt> to keep
+     * it fixed
+     * @return <tt>this</tt>
+     * @see #failFast(boolean)
+     */
+    public Builder adaptiveOrdering(boolean adaptiveOrdering) {
+      this.adaptiveOrdering = adaptiveOrdering;
+      return this;
+    }
+
+    /**
+     * Sets whether the <tt>Ruler</tt> being built records the call counts, failure counts and
+     * latencies of each of its rules.
+     *
+     * <p>
+     * Recording the metrics slows every validation down, since each rule is timed. By default, no
+     * metric is recorded.
+     *
+     * @param recordMetrics <tt>true</tt> to record metrics, <tt>false</tt> otherwise
+     * @return <tt>this</tt>
+     * @see Ruler#getMetrics()
+     */
+    public Builder recordMetrics(boolean recordMetrics) {
+      this.recordMetrics = recordMetrics;
+      return this;
+    }
+
+    /**
+     * Sets the executor on which the <tt>Ruler</tt> being built runs its custom rules in
+     * <tt>validatePasswordAsync(String)</tt>.
+     *
+     * <p>
+     * By default, the common fork-join pool is used. When the custom rules block, for instance on
+     * I/O, a dedicated executor should be used instead, such as a cached thread pool or, on Java
+     * 21 and later, <tt>Executors.newVirtualThreadPerTaskExecutor()</tt>.
+     *
+     * @param executor the executor to run the custom rules on
+     * @return <tt>this</tt>
+     * @see Ruler#validatePasswordAsync(String)
+     */
+    public Builder executor(Executor executor) {
+      this.executor = checkNotNull(executor, "executor must not be null");
+      return this;
+    }
+
+    /**
+     * Makes the <tt>Ruler</tt> being built cache the results of
+     * <tt>validatePassword(String)</tt>.
+     *
+     * <p>
+     * The passwords themselves are never kept: the results are keyed by a keyed hash of the
+     * password. At most <tt>maximumSize</tt> results are kept, each for at most
+     * <tt>duration</tt>. By default, no result is cached.
+     *
+     * @param maximumSize the maximum number of cached results
+     * @param duration how long each result is kept after being computed
+     * @param unit the unit of <tt>duration</tt>
+     * @return <tt>this</tt>
+     * @throws IllegalArgumentException if <tt>maximumSize &lt;= 0</tt> or
+     * <tt>duration &lt;= 0</tt>
+     * @see Ruler#getCacheStats()
+     */
+    public Builder cacheResults(long maximumSize, long duration, TimeUnit unit) {
+      checkArgument(maximumSize > 0, "maximumSize must be strictly positive");
+      checkArgument(duration > 0, "duration must be strictly positive");
+      this.cacheUnit = checkNotNull(unit, "unit must not be null");
+      this.cacheMaximumSize = maximumSize;
+      this.cacheDuration = duration;
+      return this;
+    }
+
+    /**
+     * Sets the weight of the characters of <tt>rule</tt> when filling the generated passwords,
+     * once the mandatory characters of each <tt>CharacterRule</tt> are drawn.
+     *
+     * <p>
+     * By default, all the valid characters are equally likely. When weights are given, each
+     * <tt>CharacterRule</tt> is drawn proportionally to its weight, <tt>1</tt> if none was given,
+     * then one of its characters uniformly. For instance, with <tt>asciiLetters(1)</tt> and
+     * <tt>asciiDigits(1)</tt> both weighted <tt>1</tt>, half of the characters are digits. A
+     * character valid for several rules can be drawn from each of them.
+     *
+     * <p>
+     * The weights are precomputed in an alias table, so each character is drawn in constant time
+     * whatever the number of rules.
+     *
+     * @param rule the rule whose characters are weighted; it must be added to this builder too
+     * @param weight the weight of the characters of <tt>rule</tt>
+     * @return <tt>this</tt>
+     * @throws IllegalArgumentException if <tt>weight</tt> isn't strictly positive and finite
+     * @see Ruler#getGeneratedEntropy(int)
+     */
+    public Builder generationWeight(CharacterRule rule, double weight) {
+      checkNotNull(rule, "rule must not be null");
+      checkArgument(weight > 0 && !Double.isInfinite(weight), "weight (%s) must be strictly positive and finite", weight);
+      this.generationWeights.put(rule, weight);
+      return this;
+    }
+
     /**
      * Creates a new <tt>Ruler</tt> with all the rules that were add to
      * <tt>this</tt>.
      *
+     * <p>
+     * The built-in rules (length, character and whitespace rules) are compiled together so that
+     * the validation of a password reads its characters only once, whatever the number of rules.
+     * Custom rules are validated one after the other, as usual.
+     *
      * @return a new ruler containing the rules
-     * @throws IllegalStateException if no rule were added to <tt>this</tt>.
+     * @throws IllegalStateException if no rule were added to <tt>this</tt>, or if generation weights
+     * were given to rules which were not added.
      */
     public Ruler build() {
       checkState(this.nonEmpty, "No rules were added to this builder");
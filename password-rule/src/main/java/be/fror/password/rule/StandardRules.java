@@ -27,21 +27,56 @@ import com.google.common.base.CharMatcher;
  */
 class StandardRules {
 
-  static final Rule NO_WHITESPACE = new Rule() {
+  static final Rule NO_WHITESPACE = new ExcludedCharactersRule(CharMatcher.WHITESPACE, "noWhitespace", "noWhitespace()");
+
+  /**
+   * A rule failing as soon as the password contains any character matched by a given matcher.
+   */
+  static final class ExcludedCharactersRule implements CountingRule {
+
+    private final CharMatcher matcher;
+    private final RuleResult failure;
+    private final String description;
+
+    ExcludedCharactersRule(final CharMatcher matcher, final String errorCode, final String description) {
+      this.matcher = matcher;
+      this.failure = failed(errorCode).freeze();
+      this.description = description;
+    }
+
     @Override
     public RuleResult validate(final Password password) {
       checkNotNull(password, "password must not be null");
-      if (CharMatcher.WHITESPACE.matchesNoneOf(password.getPassword())) {
+      if (this.matcher.matchesNoneOf(password.getCharacters())) {
+        return ok();
+      } else {
+        return this.failure;
+      }
+    }
+
+    @Override
+    public CharMatcher getCountedCharacters() {
+      return this.matcher;
+    }
+
+    @Override
+    public boolean accepts(final int length, final int count) {
+      return count == 0;
+    }
+
+    @Override
+    public RuleResult validate(final int length, final int count) {
+      if (accepts(length, count)) {
         return ok();
       } else {
-        return failed("noWhitespace");
+        return this.failure;
       }
     }
 
     @Override
     public String toString() {
-      return "noWhitespace()";
+      return this.description;
     }
-  };
+  }
 
 }
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Ascii;
+import com.google.common.math.DoubleMath;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Estimates the strength of passwords chosen by users, in bits of entropy.
+ *
+ * <p>
+ * A password is split into the sequence of patterns which is the easiest to guess, each pattern
+ * being given the number of bits needed to guess it:
+ *
+ * <ul>
+ * <li>a single character, guessed by brute force among the character classes used by the password
+ * (ASCII lowercase letters, uppercase letters, digits, symbols and other characters);</li>
+ * <li>a character repeated, such as <tt>"aaaa"</tt>;</li>
+ * <li>a sequence of consecutive characters, such as <tt>"abcd"</tt> or <tt>"9876"</tt>;</li>
+ * <li>a sequence of adjacent keys of a QWERTY keyboard, such as <tt>"qwerty"</tt> or
+ * <tt>"lkjh"</tt>;</li>
+ * <li>a known password, such as <tt>"password"</tt>, contained in the optional
+ * <tt>PasswordIndex</tt>, with or without its uppercase letters.</li>
+ * </ul>
+ *
+ * <p>
+ * The estimate takes quadratic time in the length of the password, but the lookups of known
+ * passwords are limited to substrings of at most <tt>MAX_KNOWN_PASSWORD_LENGTH</tt> characters in
+ * the first <tt>MAX_ANALYZED_LENGTH</tt> characters. It typically takes a few microseconds,
+ * which allows to run it each time a user types a character.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@ThreadSafe
+@Immutable
+public final class StrengthEstimator {
+
+  /**
+   * The maximum length of the substrings looked up in the <tt>PasswordIndex</tt>.
+   */
+  public static final int MAX_KNOWN_PASSWORD_LENGTH = 24;
+
+  /**
+   * The number of characters in which patterns are searched; the following characters are all
+   * guessed by brute force.
+   */
+  public static final int MAX_ANALYZED_LENGTH = 128;
+
+  /**
+   * The minimum length of repeated characters, sequences and keyboard patterns.
+   */
+  private static final int MIN_PATTERN_LENGTH = 3;
+
+  /**
+   * The minimum length of the known passwords looked up in the middle of a password.
+   */
+  private static final int MIN_KNOWN_PASSWORD_LENGTH = 4;
+
+  private static final int LOWERCASE = 1;
+  private static final int UPPERCASE = 2;
+  private static final int DIGIT = 4;
+  private static final int SYMBOL = 8;
+  private static final int OTHER = 16;
+
+  /**
+   * An arbitrary number of characters for those which aren't ASCII letters, digits or symbols.
+   */
+  private static final int OTHER_CHARACTERS = 100;
+
+  private static final String[] KEYBOARD_ROWS = {"`1234567890-=", "qwertyuiop[]\\", "asdfghjkl;'", "zxcvbnm,./"};
+
+  /**
+   * The number of keys on the rows of <tt>KEYBOARD_ROWS</tt>.
+   */
+  private static final int KEYBOARD_KEYS;
+
+  /**
+   * For each ASCII character, <tt>row * 16 + column</tt> of its key, or <tt>-1</tt> if it has none.
+   */
+  private static final int[] KEYBOARD_POSITIONS = new int[Ascii.MAX + 1];
+
+  static {
+    Arrays.fill(KEYBOARD_POSITIONS, -1);
+    int keys = 0;
+    for (int row = 0; row < KEYBOARD_ROWS.length; row++) {
+      final String keysOfRow = KEYBOARD_ROWS[row];
+      for (int column = 0; column < keysOfRow.length(); column++) {
+        KEYBOARD_POSITIONS[keysOfRow.charAt(column)] = row * 16 + column;
+      }
+      keys += keysOfRow.length();
+    }
+    KEYBOARD_KEYS = keys;
+  }
+
+  /**
+   * Returns an estimator looking for repeated characters, sequences and keyboard patterns.
+   *
+   * @return an estimator without any known password
+   */
+  public static StrengthEstimator create() {
+    return new StrengthEstimator(null);
+  }
+
+  /**
+   * Returns an estimator also looking for the passwords of <tt>index</tt>.
+   *
+   * @param index the known passwords, typically a list of breached or common passwords
+   * @return an estimator using <tt>index</tt>
+   */
+  public static StrengthEstimator create(final PasswordIndex index) {
+    return new StrengthEstimator(checkNotNull(index, "index must not be null"));
+  }
+
+  @Nullable
+  private final PasswordIndex index;
+  private final double knownPasswordBits;
+
+  private StrengthEstimator(@Nullable final PasswordIndex index) {
+    this.index = index;
+    this.knownPasswordBits = index == null ? 0 : DoubleMath.log2(Math.max(index.size(), 1));
+  }
+
+  /**
+   * Returns the estimated number of bits of entropy of <tt>password</tt>, that is the base 2
+   * logarithm of the number of guesses needed to find it.
+   *
+   * @param password the password to estimate
+   * @return the estimated entropy of <tt>password</tt>, in bits
+   */
+  public double estimateEntropy(final CharSequence password) {
+    checkNotNull(password, "password must not be null");
+    final int length = password.length();
+    if (length == 0) {
+      return 0;
+    }
+    final double charBits = DoubleMath.log2(poolSize(password));
+    final int analyzed = Math.min(length, MAX_ANALYZED_LENGTH);
+    // Kept in a char[] rather than a String so that it can be wiped like the password.
+    final char[] lowercase = new char[analyzed];
+    try {
+      for (int i = 0; i < analyzed; i++) {
+        lowercase[i] = Ascii.toLowerCase(password.charAt(i));
+      }
+      return estimateEntropy(password, lowercase, charBits);
+    } finally {
+      Arrays.fill(lowercase, '\0');
+    }
+  }
+
+  private double estimateEntropy(final CharSequence password, final char[] lowercase, final double charBits) {
+    final int length = password.length();
+    final int analyzed = lowercase.length;
+
+    // best[end] is the entropy of the easiest sequence of patterns making password[0, end).
+    final double[] best = new double[analyzed + 1];
+    // uppercase[end] is the number of uppercase letters in password[0, end).
+    final int[] uppercase = new int[analyzed + 1];
+    int repeatStart = 0;
+    int ascendingStart = 0;
+    int descendingStart = 0;
+    int keyboardStart = 0;
+    int keyboardStep = 0;
+    for (int end = 1; end <= analyzed; end++) {
+      final int last = end - 1;
+      uppercase[end] = uppercase[last] + (lowercase[last] != password.charAt(last) ? 1 : 0);
+      if (last == 0) {
+        repeatStart = ascendingStart = descendingStart = keyboardStart = 0;
+      } else {
+        final char previous = password.charAt(last - 1);
+        final char current = password.charAt(last);
+        repeatStart = current == previous ? repeatStart : last;
+        ascendingStart = current == previous + 1 ? ascendingStart : last;
+        descendingStart = current == previous - 1 ? descendingStart : last;
+        final int step = keyboardStep(lowercase[last - 1], lowercase[last]);
+        if (step == 0) {
+          keyboardStart = last;
+        } else if (step != keyboardStep) {
+          keyboardStart = last - 1;
+        }
+        keyboardStep = step;
+      }
+
+      double bits = best[last] + charBits;
+      bits = Math.min(bits, bestRun(best, repeatStart, end, charBits));
+      bits = Math.min(bits, bestRun(best, ascendingStart, end, charBits + 1));
+      bits = Math.min(bits, bestRun(best, descendingStart, end, charBits + 1));
+      bits = Math.min(bits, bestRun(best, keyboardStart, end, DoubleMath.log2(KEYBOARD_KEYS) + 1));
+      if (this.index != null) {
+        bits = bestKnownPassword(best, uppercase, password, lowercase, end, analyzed == length, bits);
+      }
+      best[end] = bits;
+    }
+    return best[analyzed] + (length - analyzed) * charBits;
+  }
+
+  /**
+   * Returns the entropy of the easiest way to make <tt>password[0, end)</tt> ending with a run
+   * of <tt>[runStart, end)</tt>, each run costing <tt>startBits</tt> for its first character plus
+   * its length.
+   */
+  private static double bestRun(final double[] best, final int runStart, final int end, final double startBits) {
+    double bits = Double.POSITIVE_INFINITY;
+    for (int start = runStart; start <= end - MIN_PATTERN_LENGTH; start++) {
+      bits = Math.min(bits, best[start] + startBits + DoubleMath.log2(end - start));
+    }
+    return bits;
+  }
+
+  /**
+   * Returns the entropy of the easiest way to make <tt>password[0, end)</tt> ending with a known
+   * password, or <tt>bits</tt> if none is easier.
+   */
+  private double bestKnownPassword(final double[] best, final int[] uppercase, final CharSequence password,
+      final char[] lowercase, final int end, final boolean complete, double bits) {
+    for (int start = Math.max(0, end - MAX_KNOWN_PASSWORD_LENGTH); start < end; start++) {
+      final boolean whole = complete && start == 0 && end == password.length();
+      if (!whole && end - start < MIN_KNOWN_PASSWORD_LENGTH) {
+        break;
+      }
+      final double knownBits = best[start] + this.knownPasswordBits;
+      if (knownBits >= bits) {
+        // Not worth a lookup.
+        continue;
+      }
+      if (this.index.contains(CharBuffer.wrap(password, start, end))) {
+        bits = knownBits;
+      } else if (uppercase[end] != uppercase[start] && knownBits + 1 < bits
+          && this.index.contains(CharBuffer.wrap(lowercase, start, end - start))) {
+        // One more bit to guess the case.
+        bits = knownBits + 1;
+      }
+    }
+    return bits;
+  }
+
+  /**
+   * Returns <tt>1</tt> or <tt>-1</tt> if <tt>current</tt> is the key right or left of
+   * <tt>previous</tt> on the same row, <tt>0</tt> otherwise.
+   */
+  private static int keyboardStep(final char previous, final char current) {
+    if (previous > Ascii.MAX || current > Ascii.MAX) {
+      return 0;
+    }
+    final int from = KEYBOARD_POSITIONS[previous];
+    final int to = KEYBOARD_POSITIONS[current];
+    if (from < 0 || to < 0 || from >>> 4 != to >>> 4) {
+      return 0;
+    }
+    final int step = to - from;
+    return step == 1 || step == -1 ? step : 0;
+  }
+
+  /**
+   * Returns the number of characters of the classes used by <tt>password</tt>.
+   */
+  private static int poolSize(final CharSequence password) {
+    int classes = 0;
+    for (int i = 0, l = password.length(); i < l; i++) {
+      final char c = password.charAt(i);
+      if (RuleConstants.ASCII_LOWERCASE_LETTER_MATCHER.matches(c)) {
+        classes |= LOWERCASE;
+      } else if (RuleConstants.ASCII_UPPERCASE_LETTER_MATCHER.matches(c)) {
+        classes |= UPPERCASE;
+      } else if (RuleConstants.ASCII_DIGIT_MATCHER.matches(c)) {
+        classes |= DIGIT;
+      } else if (c == ' ' || RuleConstants.ASCII_SYMBOL_MATCHER.matches(c)) {
+        classes |= SYMBOL;
+      } else {
+        classes |= OTHER;
+      }
+    }
+    int size = 0;
+    size += (classes & LOWERCASE) != 0 ? RuleConstants.ASCII_LOWERCASE_LETTER_CHARACTERS.length() : 0;
+    size += (classes & UPPERCASE) != 0 ? RuleConstants.ASCII_UPPERCASE_LETTER_CHARACTERS.length() : 0;
+    size += (classes & DIGIT) != 0 ? RuleConstants.ASCII_DIGIT_CHARACTERS.length() : 0;
+    size += (classes & SYMBOL) != 0 ? RuleConstants.ASCII_SYMBOL_CHARACTERS.length() + 1 : 0;
+    size += (classes & OTHER) != 0 ? OTHER_CHARACTERS : 0;
+    return size;
+  }
+}
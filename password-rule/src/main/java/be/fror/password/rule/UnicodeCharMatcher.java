@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import com.google.common.base.CharMatcher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntPredicate;
+
+/**
+ * A <tt>CharMatcher</tt> for Unicode character classes, also able to match supplementary code
+ * points.
+ *
+ * <p>
+ * The characters of the Basic Multilingual Plane are looked up in a precomputed two-level table:
+ * the 8 highest bits of a character select a block of 256 bits, the 8 lowest bits select the bit
+ * in that block. Identical blocks, such as the many blocks without any match, are shared. The
+ * supplementary code points, which are rare in passwords, are tested directly.
+ *
+ * <p>
+ * Surrogate characters are never matched on their own: <tt>countIn</tt> counts code points, so a
+ * surrogate pair is counted once if its code point matches.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+final class UnicodeCharMatcher extends CharMatcher {
+
+  private static final int BLOCK_BITS = 8;
+  private static final int WORDS_PER_BLOCK = (1 << BLOCK_BITS) / Long.SIZE;
+
+  private static final ConcurrentMap<Character.UnicodeScript, UnicodeCharMatcher> SCRIPT_MATCHERS = new ConcurrentHashMap<>();
+
+  /**
+   * Returns a matcher of the code points accepted by <tt>predicate</tt>.
+   *
+   * @param predicate the predicate on code points, which must return <tt>false</tt> for surrogate
+   * characters.
+   * @param description the <tt>toString()</tt> of the matcher
+   */
+  static UnicodeCharMatcher of(final IntPredicate predicate, final String description) {
+    final int blockCount = (Character.MAX_VALUE + 1) >>> BLOCK_BITS;
+    final char[] blockIndexes = new char[blockCount];
+    final Map<BlockKey, Integer> distinctBlocks = new HashMap<>();
+    long[] words = new long[0];
+    for (int block = 0; block < blockCount; block++) {
+      final long[] bits = new long[WORDS_PER_BLOCK];
+      for (int i = 0; i < 1 << BLOCK_BITS; i++) {
+        if (predicate.test((block << BLOCK_BITS) | i)) {
+          bits[i >>> 6] |= 1L << i;
+        }
+      }
+      final BlockKey key = new BlockKey(bits);
+      Integer index = distinctBlocks.get(key);
+      if (index == null) {
+        index = distinctBlocks.size();
+        distinctBlocks.put(key, index);
+        words = Arrays.copyOf(words, words.length + WORDS_PER_BLOCK);
+        System.arraycopy(bits, 0, words, index * WORDS_PER_BLOCK, WORDS_PER_BLOCK);
+      }
+      blockIndexes[block] = (char) (int) index;
+    }
+    return new UnicodeCharMatcher(blockIndexes, words, predicate, description);
+  }
+
+  /**
+   * Returns the matcher of the code points of <tt>script</tt>, computed once per script.
+   */
+  static UnicodeCharMatcher ofScript(final Character.UnicodeScript script) {
+    return SCRIPT_MATCHERS.computeIfAbsent(script, s -> of(
+        codePoint -> !isSurrogate(codePoint) && Character.UnicodeScript.of(codePoint) == s,
+        "UnicodeCharMatcher.ofScript(" + s + ")"));
+  }
+
+  static boolean isSurrogate(final int codePoint) {
+    return codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE;
+  }
+
+  private final char[] blockIndexes;
+  private final long[] words;
+  private final IntPredicate supplementaryPredicate;
+  private final String description;
+
+  private UnicodeCharMatcher(final char[] blockIndexes, final long[] words, final IntPredicate supplementaryPredicate, final String description) {
+    this.blockIndexes = blockIndexes;
+    this.words = words;
+    this.supplementaryPredicate = supplementaryPredicate;
+    this.description = description;
+  }
+
+  @Override
+  public boolean matches(final char c) {
+    final long word = this.words[this.blockIndexes[c >>> BLOCK_BITS] * WORDS_PER_BLOCK + ((c >>> 6) & (WORDS_PER_BLOCK - 1))];
+    return ((word >>> c) & 1L) != 0;
+  }
+
+  /**
+   * Returns whether the code point <tt>codePoint</tt> is matched.
+   *
+   * @param codePoint any valid code point
+   * @return <tt>true</tt> if <tt>codePoint</tt> is matched, <tt>false</tt> otherwise
+   */
+  boolean matchesCodePoint(final int codePoint) {
+    if (codePoint <= Character.MAX_VALUE) {
+      return matches((char) codePoint);
+    } else {
+      return this.supplementaryPredicate.test(codePoint);
+    }
+  }
+
+  @Override
+  public int countIn(final CharSequence sequence) {
+    int count = 0;
+    for (int i = 0, l = sequence.length(); i < l; i++) {
+      final char c = sequence.charAt(i);
+      if (Character.isHighSurrogate(c) && i + 1 < l && Character.isLowSurrogate(sequence.charAt(i + 1))) {
+        if (this.supplementaryPredicate.test(Character.toCodePoint(c, sequence.charAt(++i)))) {
+          count++;
+        }
+      } else if (matches(c)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return this.description;
+  }
+
+  private static final class BlockKey {
+
+    private final long[] bits;
+
+    BlockKey(final long[] bits) {
+      this.bits = bits;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof BlockKey && Arrays.equals(this.bits, ((BlockKey) obj).bits);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(this.bits);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A rule requiring a minimum number of code points of a Unicode character class.
+ *
+ * <p>
+ * Unlike <tt>CharacterRule</tt>s, these rules are not used to generate passwords.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+class UnicodeCharacterRule implements CountingRule {
+
+  private final UnicodeCharMatcher matcher;
+  private final int numberOfCharacters;
+  private final String errorCode;
+  private final RuleResult failure;
+
+  UnicodeCharacterRule(UnicodeCharMatcher matcher, int numberOfCharacters, String errorCode, ImmutableMap<String, Object> parameters) {
+    this.matcher = matcher;
+    this.numberOfCharacters = numberOfCharacters;
+    this.errorCode = errorCode;
+    this.failure = RuleResult.failed(this.errorCode, parameters).freeze();
+  }
+
+  @Override
+  public RuleResult validate(Password password) {
+    final CharSequence pwd = password.getCharacters();
+    return validate(pwd.length(), this.matcher.countIn(pwd));
+  }
+
+  @Override
+  public CharMatcher getCountedCharacters() {
+    return this.matcher;
+  }
+
+  @Override
+  public boolean accepts(int length, int count) {
+    return count >= this.numberOfCharacters;
+  }
+
+  @Override
+  public RuleResult validate(int length, int count) {
+    if (accepts(length, count)) {
+      return RuleResult.ok();
+    } else {
+      return this.failure;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.errorCode + "(" + this.numberOfCharacters + ")";
+  }
+}
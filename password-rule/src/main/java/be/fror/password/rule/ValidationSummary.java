@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * The aggregated results of the validation of many passwords by a <tt>Ruler</tt>.
+ *
+ * <p>
+ * Only counts are kept: the number of passwords validated, the number of valid passwords and, for
+ * each error code, the number of failures reporting it.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ * @see Ruler#validateAll(java.util.stream.Stream)
+ */
+@Immutable
+public final class ValidationSummary {
+
+  private final long totalCount;
+  private final long validCount;
+  private final ImmutableMap<String, Long> failureCounts;
+
+  ValidationSummary(final long totalCount, final long validCount, final ImmutableMap<String, Long> failureCounts) {
+    this.totalCount = totalCount;
+    this.validCount = validCount;
+    this.failureCounts = failureCounts;
+  }
+
+  /**
+   *
+   * @return the number of passwords validated
+   */
+  public long getTotalCount() {
+    return this.totalCount;
+  }
+
+  /**
+   *
+   * @return the number of valid passwords
+   */
+  public long getValidCount() {
+    return this.validCount;
+  }
+
+  /**
+   *
+   * @return the number of invalid passwords
+   */
+  public long getInvalidCount() {
+    return this.totalCount - this.validCount;
+  }
+
+  /**
+   * Returns, for each error code, the number of failures reporting it, sorted by error code.
+   *
+   * <p>
+   * A password failing several rules is counted once for each of their error codes.
+   *
+   * @return the number of failures, by error code
+   */
+  public ImmutableMap<String, Long> getFailureCounts() {
+    return this.failureCounts;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == null || this.getClass() != obj.getClass()) {
+      return false;
+    }
+    ValidationSummary other = (ValidationSummary) obj;
+    return this.totalCount == other.totalCount
+        && this.validCount == other.validCount
+        && Objects.equals(this.failureCounts, other.failureCounts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(ValidationSummary.class, this.totalCount, this.validCount, this.failureCounts);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(ValidationSummary.class)
+        .add("totalCount", this.totalCount)
+        .add("validCount", this.validCount)
+        .add("failureCounts", this.failureCounts)
+        .toString();
+  }
+
+  /**
+   * Mutable container accumulating results, used as a <tt>Collector</tt> container.
+   */
+  @NotThreadSafe
+  static final class Accumulator {
+
+    private long totalCount;
+    private long validCount;
+    private final Map<String, long[]> failureCounts = new HashMap<>();
+
+    void add(final RuleResult result) {
+      this.totalCount++;
+      if (result.isValid()) {
+        this.validCount++;
+      } else {
+        for (Failure failure : result.getFailures()) {
+          long[] count = this.failureCounts.get(failure.getErrorCode());
+          if (count == null) {
+            count = new long[1];
+            this.failureCounts.put(failure.getErrorCode(), count);
+          }
+          count[0]++;
+        }
+      }
+    }
+
+    Accumulator merge(final Accumulator other) {
+      this.totalCount += other.totalCount;
+      this.validCount += other.validCount;
+      for (Map.Entry<String, long[]> entry : other.failureCounts.entrySet()) {
+        final long[] count = this.failureCounts.get(entry.getKey());
+        if (count == null) {
+          this.failureCounts.put(entry.getKey(), entry.getValue());
+        } else {
+          count[0] += entry.getValue()[0];
+        }
+      }
+      return this;
+    }
+
+    ValidationSummary toSummary() {
+      final Map<String, Long> sortedCounts = new TreeMap<>();
+      for (Map.Entry<String, long[]> entry : this.failureCounts.entrySet()) {
+        sortedCounts.put(entry.getKey(), entry.getValue()[0]);
+      }
+      return new ValidationSummary(this.totalCount, this.validCount, ImmutableMap.copyOf(sortedCounts));
+    }
+  }
+}
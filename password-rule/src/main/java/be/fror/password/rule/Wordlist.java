@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A list of words, such as a diceware list, used to generate passphrases.
+ *
+ * <p>
+ * The words are packed as UTF-8 in a single array and located by an array of offsets, so that a
+ * list of 7,776 words takes about 70 KiB instead of about 400 KiB as a
+ * <tt>List&lt;String&gt;</tt>.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@ThreadSafe
+@Immutable
+public final class Wordlist {
+
+  /**
+   * Reads a list of words from a UTF-8 text file containing one word per line.
+   *
+   * <p>
+   * The lines are trimmed and the empty lines are ignored. Duplicate words are kept: they are
+   * just more likely to be chosen.
+   *
+   * @param file the UTF-8 text file containing one word per line
+   * @return the list of the words of <tt>file</tt>
+   * @throws IOException if <tt>file</tt> can't be read
+   * @throws IllegalArgumentException if <tt>file</tt> contains no word
+   */
+  public static Wordlist read(final Path file) throws IOException {
+    checkNotNull(file, "file must not be null");
+    final byte[] bytes = Files.readAllBytes(file);
+    int[] offsets = new int[1024];
+    int count = 0;
+    int length = 0;
+    int lineStart = 0;
+    for (int i = 0; i <= bytes.length; i++) {
+      if (i < bytes.length && bytes[i] != '\n') {
+        continue;
+      }
+      int start = lineStart;
+      int end = i;
+      lineStart = i + 1;
+      while (start < end && isTrimmed(bytes[start])) {
+        start++;
+      }
+      while (end > start && isTrimmed(bytes[end - 1])) {
+        end--;
+      }
+      if (start == end) {
+        continue;
+      }
+      // Packs the words in place, at the beginning of the array.
+      System.arraycopy(bytes, start, bytes, length, end - start);
+      if (count + 1 == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      offsets[count++] = length;
+      length += end - start;
+    }
+    checkArgument(count > 0, "%s contains no word", file);
+    offsets[count] = length;
+    return new Wordlist(Arrays.copyOf(bytes, length), Arrays.copyOf(offsets, count + 1));
+  }
+
+  /**
+   * Returns a list of <tt>words</tt>.
+   *
+   * @param words the words of the list
+   * @return the list of <tt>words</tt>
+   * @throws IllegalArgumentException if <tt>words</tt> is empty or contains an empty word
+   */
+  public static Wordlist of(final Iterable<? extends CharSequence> words) {
+    checkNotNull(words, "words must not be null");
+    byte[] packed = new byte[256];
+    int[] offsets = new int[16];
+    int count = 0;
+    int length = 0;
+    for (CharSequence word : words) {
+      final byte[] bytes = word.toString().getBytes(StandardCharsets.UTF_8);
+      checkArgument(bytes.length > 0, "words must not contain an empty word");
+      if (count + 1 == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      if (length + bytes.length > packed.length) {
+        packed = Arrays.copyOf(packed, Math.max(length + bytes.length, packed.length * 2));
+      }
+      // Each word is encoded on its own, so that the offsets match the packed bytes.
+      System.arraycopy(bytes, 0, packed, length, bytes.length);
+      offsets[count++] = length;
+      length += bytes.length;
+    }
+    checkArgument(count > 0, "words must not be empty");
+    offsets[count] = length;
+    return new Wordlist(Arrays.copyOf(packed, length), Arrays.copyOf(offsets, count + 1));
+  }
+
+  private static boolean isTrimmed(final byte b) {
+    return b == ' ' || b == '\t' || b == '\r';
+  }
+
+  private final byte[] words;
+  private final int[] offsets;
+  private final boolean ascii;
+
+  private Wordlist(final byte[] words, final int[] offsets) {
+    this.words = words;
+    this.offsets = offsets;
+    boolean asciiWords = true;
+    for (byte b : words) {
+      asciiWords &= b >= 0;
+    }
+    this.ascii = asciiWords;
+  }
+
+  /**
+   *
+   * @return the number of words of this list
+   */
+  public int size() {
+    return this.offsets.length - 1;
+  }
+
+  /**
+   * Returns the word at <tt>index</tt>.
+   *
+   * @param index the index of the word
+   * @return the word at <tt>index</tt>
+   * @throws IndexOutOfBoundsException if <tt>index</tt> is negative or not less than
+   * <tt>size()</tt>
+   */
+  public String get(final int index) {
+    checkElementIndex(index, size());
+    final int start = this.offsets[index];
+    return new String(this.words, start, this.offsets[index + 1] - start, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Appends the word at <tt>index</tt> to <tt>out</tt> without creating any object when the words
+   * are all ASCII.
+   */
+  void appendTo(final int index, final StringBuilder out) {
+    if (this.ascii) {
+      for (int i = this.offsets[index], end = this.offsets[index + 1]; i < end; i++) {
+        out.append((char) this.words[i]);
+      }
+    } else {
+      out.append(get(index));
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Counts ASCII characters with the SIMD lanes of the Vector API.
+ *
+ * <p>
+ * For each vector of characters, the low nibbles select, in the table of each slot, the bits of
+ * the high nibbles whose character is matched, and the high nibbles select their own bit: a
+ * character is matched if both have a bit in common.
+ *
+ * <p>
+ * This class is compiled for Java 17 and only loaded by <tt>AsciiCountingEngine</tt> when the
+ * <tt>jdk.incubator.vector</tt> module is available.
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+@Immutable
+final class VectorAsciiCountingEngine extends AsciiCountingEngine {
+
+  private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+  private static final byte[] HIGH_BITS = {1, 2, 4, 8, 16, 32, 64, (byte) 128, 0, 0, 0, 0, 0, 0, 0, 0};
+
+  private final byte[][] tables;
+  private final ByteVector[] tableVectors;
+  private final ByteVector highBits;
+
+  VectorAsciiCountingEngine(final byte[][] tables) {
+    if (SPECIES.length() < 16) {
+      throw new UnsupportedOperationException("Vectors of bytes are too short: " + SPECIES);
+    }
+    this.tables = tables.clone();
+    this.tableVectors = new ByteVector[tables.length];
+    for (int slot = 0; slot < tables.length; slot++) {
+      this.tableVectors[slot] = ByteVector.fromArray(SPECIES, repeat(tables[slot]), 0);
+    }
+    this.highBits = ByteVector.fromArray(SPECIES, repeat(HIGH_BITS), 0);
+  }
+
+  private static byte[] repeat(final byte[] table) {
+    final byte[] lanes = new byte[SPECIES.length()];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = table[i & 0x0F];
+    }
+    return lanes;
+  }
+
+  @Override
+  int minimumLength() {
+    return SPECIES.length();
+  }
+
+  @Override
+  boolean isAscii(final byte[] bytes, final int offset, final int length) {
+    final int bound = offset + SPECIES.loopBound(length);
+    int i = offset;
+    for (; i < bound; i += SPECIES.length()) {
+      if (ByteVector.fromArray(SPECIES, bytes, i).compare(VectorOperators.LT, (byte) 0).anyTrue()) {
+        return false;
+      }
+    }
+    for (final int end = offset + length; i < end; i++) {
+      if (bytes[i] < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  void countAscii(final byte[] bytes, final int offset, final int length, final int[] counts) {
+    final int slots = this.tableVectors.length;
+    final int bound = offset + SPECIES.loopBound(length);
+    int i = offset;
+    for (; i < bound; i += SPECIES.length()) {
+      final ByteVector characters = ByteVector.fromArray(SPECIES, bytes, i);
+      final ByteVector lowNibbles = characters.and((byte) 0x0F);
+      final ByteVector highBits = characters.lanewise(VectorOperators.LSHR, 4).selectFrom(this.highBits);
+      for (int slot = 0; slot < slots; slot++) {
+        counts[slot] += lowNibbles.selectFrom(this.tableVectors[slot])
+            .and(highBits)
+            .compare(VectorOperators.NE, (byte) 0)
+            .trueCount();
+      }
+    }
+    for (final int end = offset + length; i < end; i++) {
+      final int c = bytes[i];
+      for (int slot = 0; slot < slots; slot++) {
+        counts[slot] += ((this.tables[slot][c & 0x0F] & 0xFF) >>> (c >>> 4)) & 1;
+      }
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class AliasTableTest {
+
+  @Test
+  public void testDraw_followsWeights() {
+    int[] weights = {1, 7, 2, 30, 1, 1, 8};
+    AliasTable table = new AliasTable(weights);
+    Random random = new Random(0);
+    RandomSource source = random::nextInt;
+    int total = 50;
+    int draws = 1_000_000;
+    int[] histogram = new int[weights.length];
+    for (int i = 0; i < draws; i++) {
+      histogram[table.draw(source)]++;
+    }
+    double chiSquared = 0;
+    for (int i = 0; i < weights.length; i++) {
+      double expected = (double) draws * weights[i] / total;
+      chiSquared += (histogram[i] - expected) * (histogram[i] - expected) / expected;
+    }
+    // 6 degrees of freedom: 30 is way beyond the 99.99th percentile.
+    assertThat(chiSquared, is(lessThan(30.0)));
+  }
+
+  @Test
+  public void testEntropy() {
+    assertThat(new AliasTable(new int[]{5, 5, 5, 5}).entropy(), is(closeTo(2, 1e-9)));
+    assertThat(new AliasTable(new int[]{1, 1, 2}).entropy(), is(closeTo(1.5, 1e-9)));
+    assertThat(new AliasTable(new int[]{42}).entropy(), is(closeTo(0, 1e-9)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroWeight() {
+    new AliasTable(new int[]{1, 0, 1});
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.CharMatcher;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class AsciiCharMatcherTest {
+
+  private static final String TEXT = "aB1!cD2? éß\u0080ÿĀŁ￿\t~\u007f";
+
+  @Test
+  public void testMatches_sameAsGuava() {
+    for (String characters : new String[]{RuleConstants.ASCII_SYMBOL_CHARACTERS, RuleConstants.ASCII_ALPHANUMERIC_CHARACTERS, "\u0000?@\u007f"}) {
+      AsciiCharMatcher ascii = AsciiCharMatcher.anyOfAscii(characters);
+      CharMatcher guava = CharMatcher.anyOf(characters);
+      for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+        assertThat(Integer.toHexString(c), ascii.matches((char) c), is(guava.matches((char) c)));
+      }
+      assertThat(ascii.countIn(TEXT), is(guava.countIn(TEXT)));
+      byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+      assertThat(ascii.countIn(bytes, 0, bytes.length), is(guava.countIn(TEXT)));
+      assertThat(ascii.countIn(bytes, 2, 3), is(guava.countIn(TEXT.substring(2, 5))));
+    }
+  }
+
+  @Test
+  public void testOrAnd() {
+    AsciiCharMatcher letters = RuleConstants.ASCII_LETTER_MATCHER;
+    AsciiCharMatcher alphanumeric = RuleConstants.ASCII_ALPHANUMERIC_MATCHER;
+    AsciiCharMatcher digits = RuleConstants.ASCII_DIGIT_MATCHER;
+    for (char c = 0; c < 256; c++) {
+      assertThat(letters.or(digits).matches(c), is(alphanumeric.matches(c)));
+      assertThat(letters.and(alphanumeric).matches(c), is(letters.matches(c)));
+      assertThat(letters.and(digits).matches(c), is(false));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAnyOfAscii_nonAscii() {
+    AsciiCharMatcher.anyOfAscii("aé");
+  }
+}
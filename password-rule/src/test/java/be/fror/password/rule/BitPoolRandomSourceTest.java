@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class BitPoolRandomSourceTest {
+
+  /**
+   * Each value of <tt>[0, bound)</tt> must be drawn about as often as the others.
+   */
+  @Test
+  public void testNextInt_uniform() {
+    for (int bound : new int[]{1, 2, 3, 10, 33, 94, 127}) {
+      RandomSource source = new BitPoolRandomSource(new Random(bound), 64);
+      int draws = 2_000 * bound;
+      int[] histogram = new int[bound];
+      for (int i = 0; i < draws; i++) {
+        histogram[source.nextInt(bound)]++;
+      }
+      // Chi-squared statistic, whose mean is bound - 1 if the values are uniformly distributed.
+      double expected = (double) draws / bound;
+      double chiSquared = 0;
+      for (int count : histogram) {
+        chiSquared += (count - expected) * (count - expected) / expected;
+      }
+      assertThat("bound " + bound, chiSquared, is(lessThan(2.0 * bound + 20)));
+    }
+  }
+
+  @Test
+  public void testNextInt_largeBound() {
+    RandomSource source = new BitPoolRandomSource(new Random(0), 16);
+    int bound = (1 << 30) + 1;
+    for (int i = 0; i < 1_000; i++) {
+      assertThat(source.nextInt(bound), is(lessThan(bound)));
+    }
+  }
+
+  /**
+   * Drawing powers of two must not waste any bit of the underlying random.
+   */
+  @Test
+  public void testNextInt_usesOnlyNeededBits() {
+    CountingRandom random = new CountingRandom();
+    RandomSource source = new BitPoolRandomSource(random, 100);
+    for (int i = 0; i < 8_000; i++) {
+      source.nextInt(64);
+    }
+    // 8,000 draws of 6 bits are 6,000 bytes, plus at most 8 bytes read ahead.
+    assertThat(random.bytes, is(lessThanOrEqualTo(6_100)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNextInt_nonPositiveBound() {
+    new BitPoolRandomSource(new Random(0), 16).nextInt(0);
+  }
+
+  private static class CountingRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    int bytes;
+
+    CountingRandom() {
+      super(0);
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+      this.bytes += bytes.length;
+      super.nextBytes(bytes);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static be.fror.password.rule.Rule.asciiDigits;
+import static be.fror.password.rule.Rule.asciiLowercaseLetters;
+import static be.fror.password.rule.Rule.asciiSymbols;
+import static be.fror.password.rule.Rule.asciiUppercaseLetters;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class CharacterCounterTest {
+
+  private static final List<CharMatcher> MATCHERS = ImmutableList.of(
+      RuleConstants.ASCII_DIGIT_MATCHER,
+      RuleConstants.ASCII_LOWERCASE_LETTER_MATCHER,
+      RuleConstants.ASCII_UPPERCASE_LETTER_MATCHER,
+      RuleConstants.ASCII_SYMBOL_MATCHER,
+      CharMatcher.WHITESPACE,
+      RuleConstants.unicodeLetterMatcher(),
+      CharMatcher.anyOf("\u0000\u007f~"));
+
+  /**
+   * The vectorized engine, when available, must count exactly like the scalar path.
+   */
+  @Test
+  public void testCount_vectorizedSameAsScalar() {
+    if (AsciiCountingEngine.isAvailable()) {
+      assertThat(AsciiCountingEngine.forMatchers(MATCHERS.toArray(new CharMatcher[0])), is(notNullValue()));
+    }
+    CharacterCounter vectorized = new CharacterCounter(MATCHERS, true);
+    CharacterCounter scalar = new CharacterCounter(MATCHERS, false);
+    int[] expected = new int[MATCHERS.size()];
+    int[] actual = new int[MATCHERS.size()];
+    Random random = new Random(42);
+    for (int n = 0; n < 2_000; n++) {
+      byte[] bytes = new byte[random.nextInt(300)];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) random.nextInt(128);
+      }
+      if (n % 3 == 0 && bytes.length > 0) {
+        // Not only ASCII.
+        bytes[random.nextInt(bytes.length)] = (byte) 0xC3;
+      }
+      int offset = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+      int length = bytes.length - offset;
+      String message = Arrays.toString(bytes) + " from " + offset;
+
+      assertThat(message, vectorized.countUtf8(bytes, offset, length, actual), is(scalar.countUtf8(bytes, offset, length, expected)));
+      assertThat(message, actual, is(equalTo(expected)));
+      if (n % 3 != 0) {
+        vectorized.countAscii(ByteBuffer.wrap(bytes), offset, length, actual);
+        scalar.count(new String(bytes, offset, length, StandardCharsets.US_ASCII), expected);
+        assertThat(message, actual, is(equalTo(expected)));
+      }
+    }
+  }
+
+  @Test
+  public void testValidateUtf8_longPasswords() {
+    Ruler ruler = Ruler.createFromRules(ImmutableList.of(
+        Rule.lengthIsBetween(8, 200), asciiLowercaseLetters(20), asciiUppercaseLetters(20), asciiDigits(20), asciiSymbols(5), Rule.noWhitespace()));
+    Random random = new Random(42);
+    for (int n = 0; n < 500; n++) {
+      char[] password = new char[random.nextInt(256)];
+      for (int i = 0; i < password.length; i++) {
+        password[i] = (char) (' ' + random.nextInt(95));
+      }
+      String string = new String(password);
+      assertThat(string, ruler.validateUtf8(string.getBytes(StandardCharsets.UTF_8)), is(equalTo(ruler.validatePassword(string))));
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static be.fror.password.rule.Rule.asciiLowercaseLetters;
+import static be.fror.password.rule.Rule.lengthIsBetween;
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.isIn;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.math.DoubleMath;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class PassphraseGeneratorTest {
+
+  private static final List<String> WORDS = asList(
+      "apple", "banana", "cherry", "dragon", "eleven", "forest", "garden", "harbor",
+      "island", "jungle", "kitten", "lemon", "market", "number", "orange", "planet");
+
+  private final Random random = new Random(0);
+
+  @Test
+  public void testGeneratePassphrase() {
+    PassphraseGenerator generator = new PassphraseGenerator.Builder(Wordlist.of(WORDS))
+        .numberOfWords(4)
+        .separator("-")
+        .build();
+    assertThat(generator.getEntropy(), is(closeTo(4 * DoubleMath.log2(WORDS.size()), 1e-9)));
+    for (int i = 0; i < 100; i++) {
+      String[] words = generator.generatePassphrase(random).split("-");
+      assertThat(words.length, is(4));
+      for (String word : words) {
+        assertThat(word, isIn(WORDS));
+      }
+    }
+  }
+
+  @Test
+  public void testGeneratePassphrases_checkedByRuler() {
+    Ruler ruler = Ruler.createFromRules(asList(asciiLowercaseLetters(1), lengthIsBetween(1, 15)));
+    PassphraseGenerator generator = new PassphraseGenerator.Builder(Wordlist.of(WORDS))
+        .numberOfWords(2)
+        .ruler(ruler)
+        .build();
+    List<String> passphrases = generator.generatePassphrases(1_000, random).collect(Collectors.toList());
+    assertThat(passphrases, hasSize(1_000));
+    for (String passphrase : passphrases) {
+      assertThat(passphrase, ruler.isValid(passphrase), is(true));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGeneratePassphrase_rejectedByRuler() {
+    Ruler ruler = Ruler.createFromRules(asList(lengthIsBetween(1, 4)));
+    new PassphraseGenerator.Builder(Wordlist.of(WORDS)).ruler(ruler).build().generatePassphrase(random);
+  }
+}
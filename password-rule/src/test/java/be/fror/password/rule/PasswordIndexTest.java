@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.hash.Hashing;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class PasswordIndexTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path buildIndex(List<String> passwords, int runSize) throws IOException {
+    Path list = temporaryFolder.newFile().toPath();
+    Files.write(list, passwords, StandardCharsets.UTF_8);
+    Path index = temporaryFolder.newFile().toPath();
+    PasswordIndexBuilder.build(list, index, runSize);
+    return index;
+  }
+
+  @Test
+  public void testContains() throws IOException {
+    List<String> passwords = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      passwords.add("password" + i);
+    }
+    passwords.add("password1"); // duplicate
+    passwords.add("");          // ignored
+    passwords.add("été");
+    PasswordIndex index = PasswordIndex.open(buildIndex(passwords, 1_000));
+
+    assertThat(index.size(), is(10_001L));
+    for (String password : passwords) {
+      assertThat(password, index.contains(password), is(!password.isEmpty()));
+    }
+    for (int i = 10_000; i < 20_000; i++) {
+      assertThat(index.contains("password" + i), is(false));
+    }
+    assertThat(index.contains("ete"), is(false));
+  }
+
+  @Test
+  public void testEmptyIndex() throws IOException {
+    PasswordIndex index = PasswordIndex.open(buildIndex(asList(), 16));
+    assertThat(index.size(), is(0L));
+    assertThat(index.contains("password"), is(false));
+  }
+
+  @Test
+  public void testNotInIndexRule() throws IOException {
+    PasswordIndex index = PasswordIndex.open(buildIndex(asList("123456", "password", "qwerty"), 16));
+    Ruler ruler = Ruler.createFromRules(asList(
+        be.fror.password.rule.Rule.lengthIsGreaterThan(7),
+        be.fror.password.rule.Rule.notInIndex(index)
+    ));
+    assertThat(ruler.validatePassword("correct horse"), is(RuleResult.ok()));
+    assertThat(ruler.validatePassword("password"), is(equalTo(RuleResult.failed("knownPassword"))));
+    assertThat(ruler.validatePassword("qwerty"), is(equalTo(RuleResult.failed("length.tooShort", "minimumLength", 7)
+        .addFailure("knownPassword"))));
+  }
+
+  @Test
+  public void testHash_utf8() {
+    for (String password : asList("", "password", "été", "€uro", "\uD83D\uDE00", "a\uD800b", "a\uDC00", "\uD800")) {
+      assertThat(password, PasswordIndex.hash(password),
+          is(Hashing.murmur3_128().hashString(password, StandardCharsets.UTF_8).asLong()));
+    }
+  }
+
+  @Test
+  public void testContains_doesNotCopyThePassword() throws IOException {
+    PasswordIndex index = PasswordIndex.open(buildIndex(asList("password", "qwerty"), 16));
+    assertThat(index.contains(new UncopyableCharSequence("password".toCharArray())), is(true));
+    assertThat(index.contains(new UncopyableCharSequence("Password1".toCharArray())), is(false));
+    StrengthEstimator estimator = StrengthEstimator.create(index);
+    assertThat(estimator.estimateEntropy(new UncopyableCharSequence("xPassword1".toCharArray())),
+        is(estimator.estimateEntropy("xPassword1")));
+  }
+
+  /**
+   * A view of a <tt>char[]</tt> failing if it is copied in a <tt>String</tt>.
+   */
+  private static final class UncopyableCharSequence implements CharSequence {
+
+    private final char[] characters;
+
+    UncopyableCharSequence(char[] characters) {
+      this.characters = characters;
+    }
+
+    @Override
+    public int length() {
+      return characters.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return characters[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      throw new AssertionError("subSequence must not be called");
+    }
+
+    @Override
+    public String toString() {
+      throw new AssertionError("toString must not be called");
+    }
+  }
+}
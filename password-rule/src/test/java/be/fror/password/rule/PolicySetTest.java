@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+import static be.fror.password.rule.Rule.asciiDigits;
+import static be.fror.password.rule.Rule.asciiLowercaseLetters;
+import static be.fror.password.rule.Rule.asciiSymbols;
+import static be.fror.password.rule.Rule.asciiUppercaseLetters;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class PolicySetTest {
+
+  @Test
+  public void testValidatePassword_sameAsEachRuler() {
+    Rule custom = password -> password.getCharacters().toString().contains("!!") ? RuleResult.failed("custom") : RuleResult.ok();
+    ImmutableMap<String, Ruler> rulers = ImmutableMap.of(
+        "lenient", new Ruler.Builder().addRule(Rule.lengthIsGreaterThan(4)).build(),
+        "digits", new Ruler.Builder().addRule(Rule.lengthIsBetween(6, 12)).addRule(asciiDigits(2)).addRule(Rule.noWhitespace()).build(),
+        "strict", new Ruler.Builder().addRule(Rule.lengthIsGreaterThan(8)).addRule(asciiDigits(1)).addRule(asciiLowercaseLetters(1))
+            .addRule(asciiUppercaseLetters(1)).addRule(asciiSymbols(1)).addRule(custom).build(),
+        "failFast", new Ruler.Builder().addRule(asciiSymbols(2)).addRule(Rule.unicodeLetters(3)).addRule(custom).failFast(true).build());
+    PolicySet<String> policies = PolicySet.of(rulers);
+    assertThat(policies.keySet(), contains("lenient", "digits", "strict", "failFast"));
+
+    String alphabet = "aZ1! é";
+    Random random = new Random(42);
+    for (int n = 0; n < 1_000; n++) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = random.nextInt(16); i > 0; i--) {
+        sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      String password = sb.toString();
+      ImmutableMap<String, RuleResult> results = policies.validatePassword(password);
+      ImmutableSet.Builder<String> accepting = ImmutableSet.builder();
+      for (Map.Entry<String, Ruler> ruler : rulers.entrySet()) {
+        assertThat(password, results.get(ruler.getKey()), is(equalTo(ruler.getValue().validatePassword(password))));
+        if (ruler.getValue().isValid(password)) {
+          accepting.add(ruler.getKey());
+        }
+      }
+      assertThat(password, policies.getAcceptingPolicies(password), is(equalTo(accepting.build())));
+    }
+  }
+
+  @Test
+  public void testEmpty() {
+    PolicySet<String> policies = PolicySet.of(ImmutableMap.of());
+    assertThat(policies.validatePassword("abc").isEmpty(), is(true));
+    assertThat(policies.getAcceptingPolicies("abc").isEmpty(), is(true));
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.math.DoubleMath;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class PronounceableGeneratorTest {
+
+  private static final List<String> WORDS = asList(
+      "apple", "banana", "cherry", "dragon", "eleven", "forest", "garden", "harbor",
+      "island", "jungle", "kitten", "lemon", "market", "number", "orange", "planet");
+
+  private final Random random = new Random(0);
+
+  @Test
+  public void testGeneratePasswords() {
+    assertThat(isGeneratedByChain("applemon"), is(true));
+    assertThat(isGeneratedByChain("aple"), is(false));
+    PronounceableGenerator generator = new PronounceableGenerator.Builder(Wordlist.of(WORDS)).build();
+    List<String> passwords = generator.generatePasswords(1_000, 12, random).collect(Collectors.toList());
+    assertThat(passwords, hasSize(1_000));
+    for (String password : passwords) {
+      assertThat(password.length(), is(12));
+      assertThat(password, CharMatcher.inRange('a', 'z').matchesAllOf(password), is(true));
+      assertThat(password, isGeneratedByChain(password), is(true));
+    }
+  }
+
+  /**
+   * Returns whether the chain trained on <tt>WORDS</tt> can generate <tt>password</tt>: each
+   * letter must follow the two previous letters of the current word in one of the words, or start
+   * a new word when the current one can end there.
+   *
+   * <p>
+   * Since the boundaries of words are not in the password, every context which could have
+   * produced the letters read so far is followed. A context is the last two letters of the
+   * current word, <tt>'^'</tt> standing for its start.
+   */
+  private static boolean isGeneratedByChain(String password) {
+    Set<String> contexts = ImmutableSet.of("^");
+    for (char c : password.toCharArray()) {
+      Set<String> nextContexts = new HashSet<>();
+      for (String context : contexts) {
+        Set<Character> followers = followers(source(context));
+        if (followers.contains(c)) {
+          nextContexts.add(context.substring(context.length() - 1) + c);
+        }
+        if (followers.contains('$') && followers("^").contains(c)) {
+          nextContexts.add("^" + c);
+        }
+      }
+      if (nextContexts.isEmpty()) {
+        return false;
+      }
+      contexts = nextContexts;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the context whose followers are drawn from in <tt>context</tt>: the context itself if
+   * it appears in the words, else its last letter at the start of a word, else the start.
+   */
+  private static String source(String context) {
+    if (!followers(context).isEmpty()) {
+      return context;
+    }
+    String backoff = "^" + context.charAt(context.length() - 1);
+    return followers(backoff).isEmpty() ? "^" : backoff;
+  }
+
+  /**
+   * Returns the characters following <tt>context</tt> in the words, <tt>'$'</tt> standing for
+   * their end.
+   */
+  private static Set<Character> followers(String context) {
+    Set<Character> followers = new HashSet<>();
+    for (String word : WORDS) {
+      String delimited = "^" + word + "$";
+      for (int i = delimited.indexOf(context); i >= 0; i = delimited.indexOf(context, i + 1)) {
+        if (i + context.length() < delimited.length()) {
+          followers.add(delimited.charAt(i + context.length()));
+        }
+      }
+    }
+    return followers;
+  }
+
+  @Test
+  public void testGetEntropy() {
+    PronounceableGenerator generator = new PronounceableGenerator.Builder(Wordlist.of(WORDS)).build();
+    double entropy = generator.getEntropy(12);
+    assertThat(entropy, is(greaterThan(0.0)));
+    assertThat(entropy, is(lessThan(12 * DoubleMath.log2(26))));
+    assertThat(generator.getEntropy(24), is(greaterThan(entropy)));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGeneratePassword_rejectedByRuler() {
+    Ruler ruler = Ruler.createFromRules(asList(Rule.asciiDigits(1)));
+    new PronounceableGenerator.Builder(Wordlist.of(WORDS)).ruler(ruler).build().generatePassword(8, random);
+  }
+}
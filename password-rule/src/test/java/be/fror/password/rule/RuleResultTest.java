@@ -7,6 +7,7 @@ package be.fror.password.rule;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import com.google.common.collect.ImmutableList;
@@ -124,4 +125,21 @@ public class RuleResultTest {
   public void testFailed_String_Map() {
   }
 
+  /**
+   * Test of freeze method, of class RuleResult.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testFreeze() {
+    RuleResult.FailedResult result = RuleResult.failed("a");
+    RuleResult.FailedResult frozen = result.freeze();
+
+    assertThat(frozen, is(equalTo(result)));
+    assertThat(frozen.isFrozen(), is(true));
+    assertThat(frozen.freeze(), is(sameInstance(frozen)));
+    assertThat(RuleResult.ok().freeze(), is(sameInstance(RuleResult.ok())));
+    result.addFailure("b");
+    assertThat(frozen.getFailures().size(), is(1));
+    frozen.addFailure("b");
+  }
+
 }
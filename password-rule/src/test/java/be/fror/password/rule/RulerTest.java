@@ -19,28 +19,61 @@ import static be.fror.password.rule.Rule.asciiDigits;
 import static be.fror.password.rule.Rule.asciiLowercaseLetters;
 import static be.fror.password.rule.Rule.asciiSymbols;
 import static be.fror.password.rule.Rule.asciiUppercaseLetters;
+import static be.fror.password.rule.Rule.lengthIsBetween;
+import static be.fror.password.rule.Rule.noWhitespace;
 import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.emptyCollectionOf;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.base.CharMatcher;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import com.google.common.math.DoubleMath;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  *
@@ -121,6 +154,410 @@ public class RulerTest {
     }
   }
 
+  /**
+   * Tests that the compiled validation returns the same results as the rules validating the
+   * password one after the other.
+   */
+  @Test
+  public void testValidate_compiledRulesMatchIndividualRules() {
+    Rule custom = password -> password.getPassword().startsWith("a")
+        ? RuleResult.ok()
+        : RuleResult.failed("custom");
+    ImmutableList<Rule> rules = ImmutableList.of(
+        Rule.lengthIsBetween(4, 12),
+        asciiLowercaseLetters(2),
+        custom,
+        asciiUppercaseLetters(1),
+        Rule.noWhitespace(),
+        asciiDigits(2),
+        Rule.asciiLetters(3),
+        asciiSymbols(1)
+    );
+    Ruler ruler = Ruler.createFromRules(rules);
+    for (String password : asList("", "a", "abcdefgh", "aB1!", "aB12!cd", "a b C 1 2 !", "\u00e9t\u00e9 A12?",
+        "aaaaaaaaaaaaaaaaaaaaaaaa", "A1\u2003b2c!")) {
+      RuleResult.FailedResult expected = RuleResult.failed();
+      for (Rule rule : rules) {
+        expected.addFailures(rule.validate(new Password(password)).getFailures());
+      }
+      RuleResult result = ruler.validatePassword(password);
+      if (expected.getFailures().isEmpty()) {
+        assertThat(password, result, is(RuleResult.ok()));
+      } else {
+        assertThat(password, result, is(equalTo(expected)));
+      }
+    }
+  }
+
+  /**
+   * Tests that the fast paths agree with validatePassword.
+   */
+  @Test
+  public void testIsValid_andFailureMask() {
+    Ruler ruler = Ruler.createFromRules(asList(
+        Rule.lengthIsGreaterThan(6),
+        asciiDigits(1),
+        Rule.noWhitespace()
+    ));
+    assertThat(ruler.isValid("abcdef1"), is(true));
+    assertThat(ruler.getFailureMask("abcdef1"), is(0L));
+    assertThat(ruler.isValid("abc"), is(false));
+    assertThat(ruler.getFailureMask("abc"), is(0b011L));
+    assertThat(ruler.isValid("abc def 1"), is(false));
+    assertThat(ruler.getFailureMask("abc def 1"), is(0b100L));
+    assertThat(ruler.getFailureMask(new StringBuilder("a b")), is(0b111L));
+    for (String password : asList("", "abc", "abcdef1", "abc def 1", "1234567")) {
+      assertThat(password, ruler.isValid(password), is(ruler.validatePassword(password).isValid()));
+    }
+  }
+
+  @Test
+  public void testValidate_failFast() {
+    Rule custom = mock(Rule.class);
+    when(custom.validate(any())).thenReturn(RuleResult.failed("custom"));
+    ImmutableList<Rule> rules = ImmutableList.of(custom, asciiDigits(1), Rule.lengthIsGreaterThan(4));
+    Ruler ruler = Ruler.createFromRules(rules);
+    Ruler failFastRuler = new Ruler.Builder().addRules(rules).failFast(true).build();
+
+    // The length rule is evaluated first, custom rules last.
+    assertThat(ruler.validatePasswordFailFast("ab"), is(equalTo(RuleResult.failed("length.tooShort", "minimumLength", 4))));
+    assertThat(failFastRuler.validatePassword("ab"), is(equalTo(RuleResult.failed("length.tooShort", "minimumLength", 4))));
+    assertThat(failFastRuler.validatePassword("abcde"), is(equalTo(asciiDigits(1).validate(new Password("abcde")))));
+    verify(custom, never()).validate(any());
+    assertThat(failFastRuler.validatePassword("abcde1"), is(equalTo(RuleResult.failed("custom"))));
+
+    // Without fail-fast, all the failures are reported in the order of the rules.
+    assertThat(ruler.validatePassword("ab").getFailures(), hasSize(3));
+    assertThat(ruler.validatePassword("ab").getFailures().get(0).getErrorCode(), is("custom"));
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    Rule custom = password -> password.getPassword().startsWith("x") ? RuleResult.failed("custom") : RuleResult.ok();
+    Ruler ruler = new Ruler.Builder()
+        .addRule(Rule.lengthIsGreaterThan(4))
+        .addRule(asciiDigits(1))
+        .addRule(custom)
+        .recordMetrics(true)
+        .build();
+
+    ruler.validatePassword("abcde1");
+    ruler.validatePassword("ab");
+    ruler.validatePassword("xbcdef");
+    assertThat(ruler.isValid("x"), is(false));
+
+    List<RuleMetrics.RuleStatistics> statistics = ruler.getMetrics().snapshot();
+    assertThat(statistics, hasSize(3));
+    assertThat(statistics.get(0).getRule(), is("lengthIsGreaterThan(4)"));
+    assertThat(statistics.get(1).getRule(), is("characters.asciiDigits(1)"));
+    assertThat(statistics.get(0).getCallCount(), is(4L));
+    assertThat(statistics.get(0).getFailureCount(), is(2L));
+    // isValid stops at the first failure and doesn't build its result.
+    assertThat(statistics.get(0).getFailureCountsByErrorCode(), is(equalTo(ImmutableMap.of("length.tooShort", 1L))));
+    assertThat(statistics.get(1).getCallCount(), is(3L));
+    assertThat(statistics.get(1).getFailureCount(), is(2L));
+    assertThat(statistics.get(2).getCallCount(), is(3L));
+    assertThat(statistics.get(2).getFailureCountsByErrorCode(), is(equalTo(ImmutableMap.of("custom", 1L))));
+    assertThat(statistics.get(2).getLatencyHistogram().stream().mapToLong(Long::longValue).sum(), is(3L));
+
+    RuleMetrics metrics = ruler.getMetrics();
+    ObjectName name = new ObjectName("be.fror.password.rule:type=RuleMetrics,name=test");
+    metrics.registerMBean(name);
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      assertThat((long[]) server.getAttribute(name, "CallCounts"), is(equalTo(new long[]{4, 3, 3})));
+      server.invoke(name, "reset", new Object[0], new String[0]);
+      assertThat(metrics.getCallCounts(), is(equalTo(new long[]{0, 0, 0})));
+    } finally {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    }
+  }
+
+  @Test
+  public void testMetrics_builtInRulesOnly() {
+    Ruler ruler = new Ruler.Builder()
+        .addRule(Rule.lengthIsGreaterThan(4))
+        .addRule(asciiDigits(1))
+        .recordMetrics(true)
+        .build();
+
+    RuleResult result = ruler.validatePassword("ab");
+    assertThat(result.getFailures(), hasSize(2));
+
+    List<RuleMetrics.RuleStatistics> statistics = ruler.getMetrics().snapshot();
+    for (RuleMetrics.RuleStatistics rule : statistics) {
+      assertThat(rule.getCallCount(), is(1L));
+      assertThat(rule.getFailureCount(), is(1L));
+    }
+    assertThat(statistics.get(0).getFailureCountsByErrorCode(), is(equalTo(ImmutableMap.of("length.tooShort", 1L))));
+    assertThat(statistics.get(1).getFailureCountsByErrorCode(), is(equalTo(ImmutableMap.of("characters.asciiDigits", 1L))));
+  }
+
+  @Test
+  public void testValidatePasswordAsync() throws Exception {
+    // Both custom rules must run concurrently to pass the barrier.
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    Rule blocking = password -> {
+      try {
+        barrier.await(10, TimeUnit.SECONDS);
+        return RuleResult.failed("blocking");
+      } catch (Exception e) {
+        return RuleResult.failed("timeout");
+      }
+    };
+    AsyncRule async = (password, executor) -> CompletableFuture.supplyAsync(() -> blocking.validate(password), executor);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Ruler ruler = new Ruler.Builder()
+          .addRule(blocking)
+          .addRule(asciiDigits(1))
+          .addRule(async)
+          .executor(executor)
+          .build();
+      RuleResult result = ruler.validatePasswordAsync("abc").get(20, TimeUnit.SECONDS);
+      assertThat(result.getFailures(), hasSize(3));
+      assertThat(result.getFailures().get(0).getErrorCode(), is("blocking"));
+      assertThat(result.getFailures().get(1).getErrorCode(), is("characters.asciiDigits"));
+      assertThat(result.getFailures().get(2).getErrorCode(), is("blocking"));
+
+      // In fail-fast mode, the custom rules aren't started if a built-in rule fails.
+      Ruler failFastRuler = new Ruler.Builder()
+          .addRule(blocking)
+          .addRule(asciiDigits(1))
+          .failFast(true)
+          .executor(executor)
+          .build();
+      assertThat(failFastRuler.validatePasswordAsync("abc").get(), is(equalTo(failFastRuler.validatePassword("abc"))));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testCacheResults() {
+    LongAdder calls = new LongAdder();
+    Rule custom = password -> {
+      calls.increment();
+      return RuleResult.failed("custom");
+    };
+    Ruler ruler = new Ruler.Builder()
+        .addRule(custom)
+        .addRule(asciiDigits(1))
+        .cacheResults(10, 1, TimeUnit.MINUTES)
+        .build();
+
+    RuleResult result = ruler.validatePassword("abc");
+    assertThat(ruler.validatePassword("abc"), is(sameInstance(result)));
+    assertThat(((RuleResult.FailedResult) result).isFrozen(), is(true));
+    assertThat(result.getFailures(), hasSize(2));
+    assertThat(calls.sum(), is(1L));
+    assertThat(ruler.getCacheStats().hitCount(), is(1L));
+    assertThat(ruler.getCacheStats().missCount(), is(1L));
+
+    ruler.invalidateCache();
+    ruler.validatePassword("abc");
+    assertThat(calls.sum(), is(2L));
+  }
+
+  @Test
+  public void testValidate_sharedFailures() {
+    Ruler ruler = Ruler.createFromRules(ImmutableList.of(Rule.lengthIsGreaterThan(4), asciiDigits(1)));
+
+    // A single failing built-in rule returns its own frozen result.
+    RuleResult result = ruler.validatePassword("abcde");
+    assertThat(ruler.validatePassword("fghij"), is(sameInstance(result)));
+    assertThat(((RuleResult.FailedResult) result).isFrozen(), is(true));
+    assertThat(ruler.validatePasswordFailFast("ab"), is(sameInstance(ruler.validatePasswordFailFast("cd"))));
+    assertThat(ruler.validatePassword("ab").getFailures(), hasSize(2));
+  }
+
+  @Test
+  public void testValidatePassword_charArray() {
+    List<Password> seen = new ArrayList<>();
+    Rule custom = password -> {
+      seen.add(password);
+      return password.getCharacters() instanceof String ? RuleResult.failed("copied") : RuleResult.ok();
+    };
+    Ruler ruler = Ruler.createFromRules(ImmutableList.of(custom, asciiDigits(1), Rule.lengthIsGreaterThan(4)));
+    char[] password = "xabcd1y".toCharArray();
+
+    assertThat(ruler.validatePassword(password), is(RuleResult.ok()));
+    assertThat(seen.get(0), is(equalTo(new Password("xabcd1y"))));
+    assertThat(seen.get(0).hashCode(), is(new Password("xabcd1y").hashCode()));
+    assertThat(Password.wrap(password, 1, 5), is(equalTo(new Password("abcd1"))));
+    assertThat(Password.wrap(password, 1, 5).getCharacters().subSequence(3, 5).toString(), is("d1"));
+    assertThat(ruler.validatePasswordFailFast(Password.wrap(password, 1, 3).getCharacters()),
+        is(equalTo(RuleResult.failed("length.tooShort", "minimumLength", 4))));
+
+    Arrays.fill(password, '\0');
+    assertThat(seen.get(0).getPassword(), is("\0\0\0\0\0\0\0"));
+  }
+
+  @Test
+  public void testValidateUtf8() {
+    Rule custom = password -> password.getCharacters().toString().contains("\u00e9") ? RuleResult.failed("custom") : RuleResult.ok();
+    ImmutableList<Rule> rules = ImmutableList.of(
+        Rule.lengthIsBetween(4, 12), asciiDigits(1), Rule.unicodeLetters(3), Rule.noWhitespace(), custom);
+    Ruler ruler = Ruler.createFromRules(rules);
+    Ruler failFastRuler = new Ruler.Builder().addRules(rules).failFast(true).build();
+    String[] alphabet = {"a", "Z", "1", " ", "\u00e9", "\u0416", "\u4e2d", "\ud835\udc00", "\ud83d\ude00", "\u2003"};
+    Random random = new Random(42);
+    for (int n = 0; n < 2_000; n++) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = random.nextInt(10); i > 0; i--) {
+        sb.append(alphabet[random.nextInt(alphabet.length)]);
+      }
+      byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+      if (n % 4 == 0 && bytes.length > 0) {
+        // Malformed input.
+        bytes[random.nextInt(bytes.length)] = (byte) (0x80 | random.nextInt(0x80));
+      }
+      String decoded = new String(bytes, StandardCharsets.UTF_8);
+      assertThat(decoded, ruler.validateUtf8(bytes), is(equalTo(ruler.validatePassword(decoded))));
+      assertThat(decoded, failFastRuler.validateUtf8(ByteBuffer.wrap(bytes)), is(equalTo(failFastRuler.validatePassword(decoded))));
+    }
+  }
+
+  @Test
+  public void testAdaptiveOrdering() {
+    AdaptiveOrdering ordering = new AdaptiveOrdering(new int[]{0, 1, 2}, 3);
+    for (int i = 0; i < 100; i++) {
+      ordering.record(0, 10, false);
+      ordering.record(1, 100, i % 2 == 0);
+      ordering.record(2, 50, true);
+    }
+    ordering.reorder();
+    // The unit always rejecting comes first, the unit never rejecting last.
+    assertThat(ordering.order(), is(equalTo(new int[]{2, 1, 0})));
+
+    // A custom rule always rejecting ends up before a length rule always accepting.
+    Rule custom = password -> RuleResult.failed("custom");
+    CompiledRules rules = CompiledRules.compile(ImmutableList.of(Rule.lengthIsGreaterThan(2), custom), true);
+    assertThat(rules.getEvaluationOrder(), is(equalTo(new int[]{0, 2})));
+    for (int i = 0; i < AdaptiveOrdering.SAMPLING_RATE * AdaptiveOrdering.SAMPLES_PER_REORDER * 4; i++) {
+      assertThat(rules.isValid("abcdef"), is(false));
+    }
+    assertThat(rules.getEvaluationOrder(), is(equalTo(new int[]{2, 0})));
+    assertThat(rules.validateFailFast("abcdef"), is(equalTo(RuleResult.failed("custom"))));
+    assertThat(rules.validateFailFast("a"), is(equalTo(RuleResult.failed("custom"))));
+  }
+
+  @Test
+  public void testValidateAll() {
+    Ruler ruler = Ruler.createFromRules(asList(
+        Rule.lengthIsGreaterThan(4),
+        asciiDigits(1)
+    ));
+    List<String> passwords = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      passwords.add(i % 2 == 0 ? "abcde" + i : "ab");
+    }
+    ValidationSummary summary = ruler.validateAll(passwords.stream());
+    assertThat(summary.getTotalCount(), is(10_000L));
+    assertThat(summary.getValidCount(), is(5_000L));
+    assertThat(summary.getInvalidCount(), is(5_000L));
+    assertThat(summary.getFailureCounts(), is(equalTo(ImmutableMap.of(
+        "characters.asciiDigits", 5_000L,
+        "length.tooShort", 5_000L))));
+
+    LongAdder invalid = new LongAdder();
+    ValidationSummary iterableSummary = ruler.validateAll(passwords, result -> {
+      if (!result.isValid()) {
+        invalid.increment();
+      }
+    });
+    assertThat(iterableSummary, is(equalTo(summary)));
+    assertThat(invalid.sum(), is(5_000L));
+  }
+
+  @org.junit.Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testValidateLines() throws IOException {
+    ImmutableList<Rule> rules = ImmutableList.of(
+        Rule.lengthIsGreaterThan(4),
+        asciiDigits(1)
+    );
+    Path file = temporaryFolder.newFile().toPath();
+    List<String> lines = asList("abcde1", "ab", "\u00e9t\u00e9 12", "", "abcdef", "123456");
+    Files.write(file, String.join("\r\n", lines).concat("\n").getBytes(StandardCharsets.UTF_8));
+
+    Ruler ruler = Ruler.createFromRules(rules);
+    Map<Long, RuleResult> failures = new TreeMap<>();
+    ValidationSummary summary = ruler.validateLines(file, (result, offset) -> failures.put(offset, result));
+    assertThat(summary, is(equalTo(ruler.validateAll(lines.stream()))));
+    assertThat(failures.keySet(), is(equalTo(ImmutableSet.of(8L, 22L, 24L))));
+    assertThat(failures.get(8L), is(equalTo(ruler.validatePassword("ab"))));
+    assertThat(failures.get(22L), is(equalTo(ruler.validatePassword(""))));
+    assertThat(failures.get(24L), is(equalTo(ruler.validatePassword("abcdef"))));
+
+    // Windows smaller than the file, forcing lines to be remapped.
+    Map<Long, RuleResult> windowedFailures = new TreeMap<>();
+    ValidationSummary windowedSummary = new MappedLineValidator(CompiledRules.compile(rules), 12, false)
+        .validate(file, (result, offset) -> windowedFailures.put(offset, result));
+    assertThat(windowedSummary, is(equalTo(summary)));
+    assertThat(windowedFailures, is(equalTo(failures)));
+  }
+
+  @Test
+  public void testValidateLines_longLines() throws IOException {
+    ImmutableList<Rule> rules = ImmutableList.of(
+        Rule.lengthIsBetween(8, 200),
+        asciiDigits(3),
+        asciiUppercaseLetters(2),
+        Rule.unicodeLetters(10)
+    );
+    Random random = new Random(0);
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      StringBuilder line = new StringBuilder();
+      for (int j = random.nextInt(300); j > 0; j--) {
+        line.append(random.nextInt(10) == 0 ? '\u00e9' : (char) (' ' + random.nextInt('~' - ' ')));
+      }
+      if (i % 2 == 0) {
+        line.setLength(line.length() / 2);
+        lines.add(CharMatcher.ASCII.negate().replaceFrom(line, 'e'));
+      } else {
+        lines.add(line.toString());
+      }
+    }
+    Path file = temporaryFolder.newFile().toPath();
+    Files.write(file, lines, StandardCharsets.UTF_8);
+
+    Ruler ruler = Ruler.createFromRules(rules);
+    List<RuleResult> failures = new ArrayList<>();
+    ValidationSummary summary = ruler.validateLines(file, (result, offset) -> failures.add(result));
+    assertThat(summary, is(equalTo(ruler.validateAll(lines.stream()))));
+    List<RuleResult> expected = new ArrayList<>();
+    for (String line : lines) {
+      RuleResult result = ruler.validatePassword(line);
+      if (!result.isValid()) {
+        expected.add(result);
+      }
+    }
+    assertThat(failures, is(equalTo(expected)));
+  }
+
+  @Test
+  public void testValidateLines_failFast() throws IOException {
+    Ruler ruler = new Ruler.Builder()
+        .addRule(Rule.lengthIsGreaterThan(4))
+        .addRule(asciiDigits(1))
+        .failFast(true)
+        .build();
+    Path file = temporaryFolder.newFile().toPath();
+    List<String> lines = asList("ab", "\u00e9t\u00e9");
+    Files.write(file, lines, StandardCharsets.UTF_8);
+
+    Map<Long, RuleResult> failures = new TreeMap<>();
+    ruler.validateLines(file, (result, offset) -> failures.put(offset, result));
+    assertThat(failures.get(0L), is(equalTo(ruler.validatePasswordFailFast("ab"))));
+    assertThat(failures.get(3L), is(equalTo(ruler.validatePasswordFailFast("\u00e9t\u00e9"))));
+    assertThat(failures.get(0L).getFailures(), hasSize(1));
+    assertThat(failures.get(3L).getFailures(), hasSize(1));
+  }
+
   @Test
   public void testGenerate_lengthIsCorrect() {
     Ruler ruler = Ruler.createFromRules(asList(asciiLowercaseLetters(1)));
@@ -170,6 +607,165 @@ public class RulerTest {
     }
   }
   
+  @Test
+  public void testGenerate_lengthRulesAreRespected() {
+    Ruler ruler = Ruler.createFromRules(asList(
+        asciiLowercaseLetters(2),
+        asciiDigits(2),
+        lengthIsBetween(6, 12)
+    ));
+    assertThat(ruler.getGeneratedLengths(), is(equalTo(Range.closed(6, 12))));
+    for (int i = 6; i <= 12; i++) {
+      String password = ruler.generatePassword(i, random);
+      assertThat(password, ruler.validatePassword(password), is(RuleResult.ok()));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerate_lengthOutOfLengthRules() {
+    Ruler ruler = Ruler.createFromRules(asList(
+        asciiLowercaseLetters(2),
+        asciiDigits(2),
+        lengthIsBetween(6, 12)
+    ));
+    ruler.generatePassword(13, random);
+  }
+
+  @Test
+  public void testGenerate_excludedCharactersAreNeverGenerated() {
+    Ruler ruler = Ruler.createFromRules(asList(
+        new DefaultCharacterRule(" \t\nab", CharMatcher.anyOf(" \t\nab"), 2, "characters.spacedLetters"),
+        asciiDigits(1),
+        noWhitespace()
+    ));
+    for (int i = 0; i < 1_000; i++) {
+      String password = ruler.generatePassword(8, random);
+      assertThat(password, ruler.validatePassword(password), is(RuleResult.ok()));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGenerate_unsatisfiableRules() {
+    Ruler ruler = Ruler.createFromRules(asList(
+        asciiLowercaseLetters(4),
+        asciiDigits(4),
+        lengthIsBetween(4, 6)
+    ));
+    ruler.getGeneratedLengths();
+  }
+
+  @Test
+  public void testGenerate_customRulesAreChecked() {
+    Rule noLeadingDigit = password -> CharMatcher.DIGIT.matches(password.getCharacters().charAt(0))
+        ? RuleResult.failed("leadingDigit")
+        : RuleResult.ok();
+    Ruler ruler = Ruler.createFromRules(asList(
+        asciiLowercaseLetters(1),
+        asciiDigits(1),
+        noLeadingDigit
+    ));
+    for (int i = 0; i < 1_000; i++) {
+      String password = ruler.generatePassword(4, random);
+      assertThat(password, ruler.validatePassword(password), is(RuleResult.ok()));
+    }
+  }
+
+  @Test
+  public void testGetGeneratedEntropy() {
+    Ruler ruler = Ruler.createFromRules(asList(
+        asciiLowercaseLetters(1),
+        asciiDigits(1)
+    ));
+    double expected = DoubleMath.log2(26) + DoubleMath.log2(10) + 6 * DoubleMath.log2(36);
+    assertThat(ruler.getGeneratedEntropy(8), is(closeTo(expected, 1e-9)));
+  }
+
+  @Test
+  public void testGenerate_generationWeights() {
+    CharacterRule letters = asciiLowercaseLetters(1);
+    CharacterRule digits = asciiDigits(1);
+    Ruler ruler = new Ruler.Builder()
+        .addRule(letters)
+        .addRule(digits)
+        .generationWeight(letters, 1)
+        .generationWeight(digits, 3)
+        .build();
+    CharMatcher asciiDigit = CharMatcher.inRange('0', '9');
+    int generatedDigits = 0;
+    for (int i = 0; i < 1_000; i++) {
+      String password = ruler.generatePassword(102, random);
+      assertThat(password, ruler.validatePassword(password), is(RuleResult.ok()));
+      // Ignores the mandatory digit.
+      generatedDigits += asciiDigit.countIn(password) - 1;
+    }
+    assertThat(generatedDigits / 100_000.0, is(closeTo(0.75, 0.01)));
+    double fillEntropy = 0.25 * DoubleMath.log2(4 * 26) + 0.75 * DoubleMath.log2(4 / 3.0 * 10);
+    assertThat(ruler.getGeneratedEntropy(3), is(closeTo(DoubleMath.log2(26) + DoubleMath.log2(10) + fillEntropy, 1e-6)));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGenerationWeight_ruleNotAdded() {
+    new Ruler.Builder()
+        .addRule(asciiLowercaseLetters(1))
+        .generationWeight(asciiDigits(1), 2)
+        .build();
+  }
+
+  @Test
+  public void testGeneratePasswords_stream() {
+    Ruler ruler = Ruler.createFromRules(asList(
+        asciiLowercaseLetters(2),
+        asciiDigits(2)
+    ));
+    List<String> passwords = ruler.generatePasswords(1_000, 10, random).collect(Collectors.toList());
+    assertThat(passwords, hasSize(1_000));
+    for (String password : passwords) {
+      assertThat(password.length(), is(10));
+      assertThat(password, ruler.validatePassword(password), is(RuleResult.ok()));
+    }
+    assertThat(ruler.generatePasswords(0, 10, random).count(), is(0L));
+  }
+
+  @Test
+  public void testGeneratePasswords_appendable() throws IOException {
+    Ruler ruler = Ruler.createFromRules(asList(
+        asciiUppercaseLetters(1),
+        asciiSymbols(1)
+    ));
+    StringBuilder sb = new StringBuilder();
+    ruler.generatePasswords(100, 6, random, sb);
+    StringWriter writer = new StringWriter();
+    ruler.generatePasswords(100, 6, random, writer);
+    for (String output : asList(sb.toString(), writer.toString())) {
+      String[] passwords = output.split("\n");
+      assertThat(passwords.length, is(100));
+      for (String password : passwords) {
+        assertThat(password.length(), is(6));
+        assertThat(password, ruler.validatePassword(password), is(RuleResult.ok()));
+      }
+    }
+  }
+
+  @Test
+  public void testGeneratePasswordsInParallel_reproducible() {
+    Ruler ruler = Ruler.createFromRules(asList(
+        asciiLowercaseLetters(1),
+        asciiUppercaseLetters(1),
+        asciiDigits(1)
+    ));
+    List<String> first = ruler.generatePasswordsInParallel(5_000, 8, new SplittableRandom(42))
+        .collect(Collectors.toList());
+    List<String> second = ruler.generatePasswordsInParallel(5_000, 8, new SplittableRandom(42))
+        .collect(Collectors.toList());
+    assertThat(first, hasSize(5_000));
+    assertThat(first, is(equalTo(second)));
+    for (String password : first) {
+      assertThat(password, ruler.validatePassword(password), is(RuleResult.ok()));
+    }
+    assertThat(ruler.generatePassword(8, new SplittableRandom(42)),
+        is(equalTo(ruler.generatePassword(8, new SplittableRandom(42)))));
+  }
+
   @Test
   public void generatePassword() {
     Ruler ruler = Ruler.createFromRules(asList(
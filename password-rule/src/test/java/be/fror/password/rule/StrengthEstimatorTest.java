@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.math.DoubleMath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class StrengthEstimatorTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testEstimateEntropy_bruteForce() {
+    StrengthEstimator estimator = StrengthEstimator.create();
+    assertThat(estimator.estimateEntropy(""), is(0.0));
+    assertThat(estimator.estimateEntropy("x7"), is(closeTo(2 * DoubleMath.log2(36), 1e-9)));
+    assertThat(estimator.estimateEntropy("hT4!"), is(closeTo(4 * DoubleMath.log2(95), 1e-9)));
+  }
+
+  @Test
+  public void testEstimateEntropy_patterns() {
+    StrengthEstimator estimator = StrengthEstimator.create();
+    double random = estimator.estimateEntropy("kx9fqm2w");
+    for (String weak : asList("aaaaaaaa", "abcdefgh", "87654321", "qwertyui", "asdfgfds")) {
+      assertThat(weak, estimator.estimateEntropy(weak), is(lessThan(random / 2)));
+    }
+    // Patterns mixed with random characters only remove the bits of the patterns.
+    assertThat(estimator.estimateEntropy("kx9f1234"), is(lessThan(random)));
+    assertThat(estimator.estimateEntropy("kx9f1234"), is(greaterThan(estimator.estimateEntropy("kx9f"))));
+  }
+
+  @Test
+  public void testEstimateEntropy_knownPasswords() throws IOException {
+    Path list = temporaryFolder.newFile().toPath();
+    Files.write(list, asList("password", "monkey", "dragon", "letmein"), StandardCharsets.UTF_8);
+    Path file = temporaryFolder.newFile().toPath();
+    PasswordIndexBuilder.build(list, file, 16);
+    StrengthEstimator estimator = StrengthEstimator.create(PasswordIndex.open(file));
+
+    assertThat(estimator.estimateEntropy("password"), is(closeTo(2, 1e-9)));
+    assertThat(estimator.estimateEntropy("Password"), is(closeTo(3, 1e-9)));
+    assertThat(estimator.estimateEntropy("dragon"), is(closeTo(2, 1e-9)));
+    assertThat(estimator.estimateEntropy("xdragon"),
+        is(closeTo(StrengthEstimator.create().estimateEntropy("x") + 2, 1e-9)));
+    assertThat(estimator.estimateEntropy("kx9fqm2w"), is(StrengthEstimator.create().estimateEntropy("kx9fqm2w")));
+  }
+
+  @Test
+  public void testEstimateEntropy_longPasswords() {
+    StrengthEstimator estimator = StrengthEstimator.create();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 10 * StrengthEstimator.MAX_ANALYZED_LENGTH; i++) {
+      sb.append((char) ('a' + (i * 7) % 26));
+    }
+    assertThat(estimator.estimateEntropy(sb), is(closeTo(sb.length() * DoubleMath.log2(26), 1e-6)));
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class UnicodeCharMatcherTest {
+
+  @Test
+  public void testMatches_sameAsCharacter() {
+    UnicodeCharMatcher cyrillic = UnicodeCharMatcher.ofScript(Character.UnicodeScript.CYRILLIC);
+    for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+      String hex = Integer.toHexString(c);
+      assertThat(hex, RuleConstants.unicodeLetterMatcher().matches((char) c), is(Character.isLetter(c)));
+      assertThat(hex, RuleConstants.unicodeDigitMatcher().matches((char) c), is(Character.isDigit(c)));
+      assertThat(hex, cyrillic.matches((char) c),
+          is(!UnicodeCharMatcher.isSurrogate(c) && Character.UnicodeScript.of(c) == Character.UnicodeScript.CYRILLIC));
+    }
+    assertThat(UnicodeCharMatcher.ofScript(Character.UnicodeScript.CYRILLIC), is(cyrillic));
+  }
+
+  @Test
+  public void testCountIn_codePoints() {
+    String mathBoldA = new String(Character.toChars(0x1D400));
+    String mathBoldDigitOne = new String(Character.toChars(0x1D7CF));
+    assertThat(RuleConstants.unicodeLetterMatcher().countIn("aé" + mathBoldA + "1"), is(3));
+    assertThat(RuleConstants.unicodeDigitMatcher().countIn("١2" + mathBoldDigitOne + "a"), is(3));
+    assertThat(RuleConstants.unicodeLetterMatcher().countIn(mathBoldA.substring(0, 1)), is(0));
+  }
+
+  @Test
+  public void testRules_compiledSameAsIndividual() {
+    String mathBoldA = new String(Character.toChars(0x1D400));
+    List<Rule> rules = asList(
+        Rule.unicodeLetters(5),
+        Rule.unicodeDigits(2),
+        Rule.unicodeScript(Character.UnicodeScript.CYRILLIC, 3),
+        Rule.asciiLetters(1),
+        Rule.noWhitespace()
+    );
+    Ruler ruler = Ruler.createFromRules(rules);
+    for (String password : asList("", "abc", "пароль12", "пар" + mathBoldA + mathBoldA + "1 ", "١٢٣ ab", "\ud800x")) {
+      RuleResult.FailedResult expected = RuleResult.failed();
+      for (Rule rule : rules) {
+        expected.addFailures(rule.validate(new Password(password)).getFailures());
+      }
+      RuleResult result = ruler.validatePassword(password);
+      if (expected.getFailures().isEmpty()) {
+        assertThat(password, result, is(RuleResult.ok()));
+      } else {
+        assertThat(password, result, is(equalTo(expected)));
+      }
+    }
+  }
+}
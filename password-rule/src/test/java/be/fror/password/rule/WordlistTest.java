@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 Olivier Grégoire <fror@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.fror.password.rule;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ *
+ * @author Olivier Grégoire &lt;fror@users.noreply.github.com&gt;
+ */
+public class WordlistTest {
+
+  private static final List<String> WORDS = asList("apple", "banana", "cherry");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testRead() throws IOException {
+    Path file = temporaryFolder.newFile().toPath();
+    Files.write(file, "apple\r\n  été \n\n\tcherry\nlast".getBytes(StandardCharsets.UTF_8));
+    Wordlist wordlist = Wordlist.read(file);
+    assertThat(wordlist.size(), is(4));
+    assertThat(wordlist.get(0), is("apple"));
+    assertThat(wordlist.get(1), is("été"));
+    assertThat(wordlist.get(2), is("cherry"));
+    assertThat(wordlist.get(3), is("last"));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGet_outOfBounds() {
+    Wordlist.of(WORDS).get(WORDS.size());
+  }
+
+  @Test
+  public void testOf() {
+    Wordlist wordlist = Wordlist.of(WORDS);
+    assertThat(wordlist.size(), is(3));
+    for (int i = 0; i < WORDS.size(); i++) {
+      assertThat(wordlist.get(i), is(WORDS.get(i)));
+    }
+  }
+
+  @Test
+  public void testOf_surrogatePairSplitBetweenWords() {
+    Wordlist wordlist = Wordlist.of(asList("a\uD83D", "\uDE00b", "c"));
+    assertThat(wordlist.size(), is(3));
+    // Each word is encoded on its own, its unpaired surrogate becoming '?'.
+    assertThat(wordlist.get(0), is("a?"));
+    assertThat(wordlist.get(1), is("?b"));
+    assertThat(wordlist.get(2), is("c"));
+  }
+}